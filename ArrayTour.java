@@ -0,0 +1,417 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.awt.Graphics;
+
+/**
+ * This class is an array-backed Tour of locations attempting to solve the
+ * Traveling Salesperson Problem. The coordinates are kept in parallel double
+ * arrays and the visiting order in an int successor array, so the heuristics
+ * scan contiguous memory and nothing is allocated per inserted point.
+ *
+ * The cities come from a PointStore. Their coordinates are copied into the
+ * tour's own arrays in the order they were inserted, which keeps the scans
+ * sequential even when the tour only visits some of the store's cities.
+ *
+ * The heuristics visit the points in the same way as Tour, so both classes
+ * build exactly the same tour from the same input.
+ *
+ * The scans run through DistanceKernels, several slots at a time where the
+ * Vector API is there.
+ *
+ * Once the tour is large enough, the insertSmallest scan is split across the
+ * common ForkJoinPool (the only time an insert allocates, for the tasks).
+ * Every worker prices a contiguous run of slots, and the runs are merged in
+ * slot order, so the edge picked is the same one the serial scan would pick.
+ *
+ * @author
+ * @version
+ */
+
+public class ArrayTour implements TourInterface
+{
+    // starting length of the arrays, they double whenever they fill up
+    private static final int INITIAL_CAPACITY = 16;
+    // tours with at least this many points scan for insertSmallest in parallel
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
+    // fewest slots a worker of the parallel scan is given
+    private static final int SCAN_GRAIN = 4096;
+
+    // instance variables
+    //Coordinates of every city the Tour can visit
+    private PointStore points;
+    //Number of points in the Tour
+    private int count;
+    //City id of the point stored in each slot
+    private int[] cities;
+    //Coordinates of every point, indexed by the slot it was stored in
+    private double[] xs;
+    private double[] ys;
+    //Coordinates of the point that follows each slot, so that every edge of
+    //the tour can be read without jumping through the successor array
+    private double[] nextXs;
+    private double[] nextYs;
+    //Slot of the point that follows each slot, -1 after the last point
+    private int[] next;
+    //Slot of the first point in the Tour
+    private int front;
+    //Slot of the last point in the Tour
+    private int rear;
+    //Number of points from which insertSmallest scans in parallel
+    private int parallelThreshold;
+    //The loops that price every slot on the calling thread
+    private DistanceKernels kernels;
+
+    // constructor
+    public ArrayTour()
+    {
+        this(new PointStore());
+    }
+
+    // constructor for a Tour over cities of the given store
+    public ArrayTour(PointStore points)
+    {
+        this(points, INITIAL_CAPACITY);
+    }
+
+    // constructor that sizes the arrays for the given number of points up front
+    public ArrayTour(PointStore points, int capacity)
+    {
+        this.points = points;
+        capacity = Math.max(capacity, 1);
+        cities = new int[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        nextXs = new double[capacity];
+        nextYs = new double[capacity];
+        next = new int[capacity];
+        count = 0;
+        front = -1;
+        rear = -1;
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        kernels = DistanceKernels.get();
+    }
+
+    //return the number of points in the tour
+    public int size()
+    {
+        return count;
+    }
+
+    // the store holding the coordinates of the cities in the tour
+    public PointStore getPoints()
+    {
+        return points;
+    }
+
+    // append Point p to the end of the tour
+    public void add(Point p)
+    {
+        add(points.add(p.getX(), p.getY()));
+    }
+
+    // append a city of the store to the end of the tour
+    public void add(int city)
+    {
+        append(city);
+    }
+
+    // append every point in the batch to the end of the tour
+    public void addAll(double[] batchXs, double[] batchYs)
+    {
+        int first = reserve(batchXs, batchYs);
+        for(int i = 0; i < batchXs.length; i++)
+            append(first + i);
+    }
+
+    // add every point in the batch according to the NearestNeighbor heuristic
+    public void insertNearestAll(double[] batchXs, double[] batchYs)
+    {
+        int first = reserve(batchXs, batchYs);
+        for(int i = 0; i < batchXs.length; i++)
+            insertNearest(first + i);
+    }
+
+    // add every point in the batch according to the InsertSmallest heuristic
+    public void insertSmallestAll(double[] batchXs, double[] batchYs)
+    {
+        int first = reserve(batchXs, batchYs);
+        for(int i = 0; i < batchXs.length; i++)
+            insertSmallest(first + i);
+    }
+
+    // the ids of the cities in the tour, in visiting order
+    public int[] toArray()
+    {
+        int[] order = new int[count];
+        int i = 0;
+        for(int c = front; c != -1; c = next[c])
+            order[i++] = cities[c];
+        return order;
+    }
+
+    // visit the cities of the tour in the given order instead, which must hold
+    // every city of the tour exactly once
+    public void setOrder(int[] order)
+    {
+        if(order.length != count)
+            throw new IllegalArgumentException("the order must hold every city of the tour once");
+        boolean[] inTour = new boolean[points.size()];
+        for(int c = 0; c < count; c++)
+            inTour[cities[c]] = true;
+        for(int city : order){
+            if(city < 0 || city >= inTour.length || !inTour[city])
+                throw new IllegalArgumentException("the order must hold every city of the tour once");
+            inTour[city] = false;
+        }
+
+        //store the cities again in their new order, which keeps the scans sequential
+        count = 0;
+        front = -1;
+        rear = -1;
+        for(int city : order)
+            append(city);
+    }
+
+    // print every point in the tour
+    public void print()
+    {
+        for(int c = front; c != -1; c = next[c]){
+            System.out.println(points.getPoint(cities[c]).toString());
+        }
+    }
+
+    // draw the tour using the given graphics context
+    public void draw(Graphics g)
+    {
+        if(count == 0)
+            return;
+        for(int c = 0; c < count; c++){
+            g.fillOval((int) xs[c] - 2, (int) ys[c] - 2, 4, 4);
+        }
+        for(int c = 0; c < count; c++){
+            g.drawLine((int) xs[c], (int) ys[c], (int) nextXs[c], (int) nextYs[c]);
+        }
+    }
+
+    //calculate the distance of the Tour by summing up the length of every edge
+    public double distance()
+    {
+        if(count == 0)
+            return -1.0;
+        double tD = 0;
+        for(int c = 0; c < count; c++){
+            tD += PointStore.distance(xs[c], ys[c], nextXs[c], nextYs[c]);
+        }
+        return tD;
+    }
+
+    // add Point p to the tour according to the NearestNeighbor heuristic
+    public void insertNearest(Point p)
+    {
+        insertNearest(points.add(p.getX(), p.getY()));
+    }
+
+    // add Point p to the tour according to the InsertSmallest heuristic
+    public void insertSmallest(Point p)
+    {
+        insertSmallest(points.add(p.getX(), p.getY()));
+    }
+
+    // add a city of the store to the tour according to the NearestNeighbor heuristic
+    public void insertNearest(int city)
+    {
+        if(count == 0){
+            append(city);
+            return;
+        }
+        double x = points.getX(city);
+        double y = points.getY(city);
+
+        int tracker = kernels.nearest(xs, ys, 0, count, x, y);
+        double nearest = PointStore.distance(xs[tracker], ys[tracker], x, y);
+        int ties = kernels.ties();
+        //Tour keeps the first of the nearest points in visiting order
+        if(ties > 1){
+            tracker = front;
+            while(PointStore.distance(xs[tracker], ys[tracker], x, y) != nearest)
+                tracker = next[tracker];
+        }
+        insertAfter(tracker, city);
+    }
+
+    // add a city of the store to the tour according to the InsertSmallest heuristic
+    public void insertSmallest(int city)
+    {
+        if(count == 0){
+            append(city);
+            return;
+        }
+        double x = points.getX(city);
+        double y = points.getY(city);
+
+        int tracker;
+        double min;
+        int ties;
+        if(count >= parallelThreshold){
+            Scan scan = new Scan(x, y, 0, count);
+            ForkJoinPool.commonPool().invoke(scan);
+            tracker = scan.tracker;
+            min = scan.min;
+            ties = scan.ties;
+        } else{
+            tracker = kernels.cheapest(xs, ys, nextXs, nextYs, 0, count, x, y);
+            min = cost(tracker, x, y);
+            ties = kernels.ties();
+        }
+        //Tour tries the closing edge first and then the rest in visiting order
+        if(ties > 1){
+            if(cost(rear, x, y) == min){
+                tracker = rear;
+            } else{
+                tracker = front;
+                while(cost(tracker, x, y) != min)
+                    tracker = next[tracker];
+            }
+        }
+        insertAfter(tracker, city);
+    }
+
+    // scan insertSmallest's edges in parallel once the tour has the given
+    // number of points (0 always does, Integer.MAX_VALUE never does)
+    public void setParallelThreshold(int threshold)
+    {
+        parallelThreshold = threshold;
+    }
+
+    // how much longer the tour gets when (x,y) goes into the edge leaving slot c
+    private double cost(int c, double x, double y)
+    {
+        return PointStore.distance(x, y, xs[c], ys[c]) + PointStore.distance(x, y, nextXs[c], nextYs[c])
+            - PointStore.distance(xs[c], ys[c], nextXs[c], nextYs[c]);
+    }
+
+    // store the city in the next free slot after the current rear
+    private void append(int city)
+    {
+        int n = store(city);
+        double x = xs[n];
+        double y = ys[n];
+        if(rear == -1){
+            front = n;
+        } else{
+            next[rear] = n;
+            nextXs[rear] = x;
+            nextYs[rear] = y;
+        }
+        next[n] = -1;
+        nextXs[n] = xs[front];
+        nextYs[n] = ys[front];
+        rear = n;
+    }
+
+    // store the city in the next free slot and link it in right after slot c
+    private void insertAfter(int c, int city)
+    {
+        if(c == rear){
+            append(city);
+            return;
+        }
+        int n = store(city);
+        double x = xs[n];
+        double y = ys[n];
+        next[n] = next[c];
+        nextXs[n] = nextXs[c];
+        nextYs[n] = nextYs[c];
+        next[c] = n;
+        nextXs[c] = x;
+        nextYs[c] = y;
+    }
+
+    // claim a slot for the city, doubling the arrays when they are full
+    private int store(int city)
+    {
+        if(count == xs.length)
+            resize(2 * xs.length);
+        cities[count] = city;
+        xs[count] = points.getX(city);
+        ys[count] = points.getY(city);
+        return count++;
+    }
+
+    // put a batch in the store, size the arrays for it once and return the
+    // id of its first city
+    private int reserve(double[] batchXs, double[] batchYs)
+    {
+        int first = points.addAll(batchXs, batchYs);
+        if(count + batchXs.length > xs.length)
+            resize(count + batchXs.length);
+        return first;
+    }
+
+    private void resize(int capacity)
+    {
+        cities = Arrays.copyOf(cities, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        nextXs = Arrays.copyOf(nextXs, capacity);
+        nextYs = Arrays.copyOf(nextYs, capacity);
+        next = Arrays.copyOf(next, capacity);
+    }
+
+    // The insertSmallest scan over the slots from first up to but not
+    // including last: the cheapest edge, the first slot it was found at and
+    // how many edges cost the same. Runs too long for one worker are split
+    // in halves, and the halves are merged so the lower one wins ties.
+    private class Scan extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private double x;
+        private double y;
+        private int first;
+        private int last;
+        private int tracker;
+        private double min;
+        private int ties;
+
+        public Scan(double x, double y, int first, int last)
+        {
+            this.x = x;
+            this.y = y;
+            this.first = first;
+            this.last = last;
+        }
+
+        protected void compute()
+        {
+            if(last - first <= SCAN_GRAIN){
+                scan();
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            Scan lower = new Scan(x, y, first, middle);
+            Scan upper = new Scan(x, y, middle, last);
+            invokeAll(lower, upper);
+            tracker = lower.tracker;
+            min = lower.min;
+            ties = lower.ties;
+            if(upper.min < min){
+                tracker = upper.tracker;
+                min = upper.min;
+                ties = upper.ties;
+            } else if(upper.min == min){
+                ties += upper.ties;
+            }
+        }
+
+        // price every slot of the run on this thread, with kernels of its own
+        private void scan()
+        {
+            DistanceKernels kernels = DistanceKernels.get();
+            tracker = kernels.cheapest(xs, ys, nextXs, nextYs, first, last, x, y);
+            min = cost(tracker, x, y);
+            ties = kernels.ties();
+        }
+    }
+}
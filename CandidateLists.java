@@ -0,0 +1,282 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The k nearest other cities of every city in a PointStore, nearest first
+ * (ties by id). Local search only tries moves that join a city to one of
+ * its candidates, which is where nearly every improving move is found, so
+ * the work per city stays constant instead of growing with the instance.
+ *
+ * The lists are kept in one flat int array, k entries per city. They are
+ * built in parallel: the cities are filed in a uniform grid of about two
+ * per cell, and the lists of different runs of cities are searched on the
+ * ForkJoinPool, each ring by ring out from the city's own cell until no
+ * unseen cell can be nearer than its k-th candidate. Building them is
+ * O(n k) and they never change, so PointStore.candidates(k) keeps the lists
+ * of a store once built and every solver reads the same ones.
+ *
+ * @author
+ * @version
+ */
+
+public class CandidateLists
+{
+    // cities the grid aims for per cell
+    private static final double CITIES_PER_CELL = 2.0;
+    // runs of cities shorter than this are not split across threads
+    private static final int GRAIN = 4096;
+
+    // instance variables
+    //Number of cities and of candidates listed for each one
+    private int count;
+    private int k;
+    //Candidates of city c are in candidates[c*k] to candidates[c*k + k - 1]
+    private int[] candidates;
+
+    //Coordinates of the cities while the lists are built
+    private PointStore points;
+    //Lower left corner, cell size and number of columns and rows of the grid
+    private double x0;
+    private double y0;
+    private double cellSize;
+    private int columns;
+    private int rows;
+    //The cities of cell c are cellCities[cellStarts[c]] to cellCities[cellStarts[c + 1] - 1]
+    private int[] cellStarts;
+    private int[] cellCities;
+
+    // constructor that lists the k nearest other cities of every city in the
+    // store (fewer when the store does not have k other cities)
+    public CandidateLists(PointStore points, int k)
+    {
+        this(points, k, ForkJoinPool.commonPool());
+    }
+
+    // the same, searching on the given pool
+    public CandidateLists(PointStore points, int k, ForkJoinPool pool)
+    {
+        count = points.size();
+        this.k = Math.max(0, Math.min(k, count - 1));
+        candidates = new int[count * this.k];
+        if(this.k == 0)
+            return;
+        this.points = points;
+        layout();
+        pool.invoke(new Search(0, count));
+        //only needed while building
+        this.points = null;
+        cellStarts = null;
+        cellCities = null;
+    }
+
+    //return the number of cities the lists cover
+    public int size()
+    {
+        return count;
+    }
+
+    //return the number of candidates listed for each city
+    public int neighbors()
+    {
+        return k;
+    }
+
+    // the i-th nearest candidate of the city, starting at 0
+    public int get(int city, int i)
+    {
+        return candidates[city * k + i];
+    }
+
+    // file every city in the grid over their bounding box
+    private void layout()
+    {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(int city = 0; city < count; city++){
+            minX = Math.min(minX, points.getX(city));
+            minY = Math.min(minY, points.getY(city));
+            maxX = Math.max(maxX, points.getX(city));
+            maxY = Math.max(maxY, points.getY(city));
+        }
+        double width = Math.max(maxX - minX, 1e-9);
+        double height = Math.max(maxY - minY, 1e-9);
+        cellSize = Math.sqrt(width * height * CITIES_PER_CELL / count);
+        //a long thin box still wants one row or column, not a fraction
+        cellSize = Math.max(cellSize, Math.max(width, height) / (CITIES_PER_CELL * count));
+        x0 = minX;
+        y0 = minY;
+        columns = Math.max(1, Math.min((int) (width / cellSize) + 1, count));
+        rows = Math.max(1, Math.min((int) (height / cellSize) + 1, count));
+
+        //count the cities of every cell, then place them
+        cellStarts = new int[columns * rows + 1];
+        int[] cells = new int[count];
+        for(int city = 0; city < count; city++){
+            cells[city] = row(points.getY(city)) * columns + column(points.getX(city));
+            cellStarts[cells[city] + 1]++;
+        }
+        for(int c = 0; c < columns * rows; c++)
+            cellStarts[c + 1] += cellStarts[c];
+        int[] filled = Arrays.copyOf(cellStarts, columns * rows);
+        cellCities = new int[count];
+        for(int city = 0; city < count; city++)
+            cellCities[filled[cells[city]]++] = city;
+    }
+
+    private int column(double x)
+    {
+        return Math.max(0, Math.min(columns - 1, (int) ((x - x0) / cellSize)));
+    }
+
+    private int row(double y)
+    {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - y0) / cellSize)));
+    }
+
+    // Searches the lists of a run of cities in grid order, splitting it in
+    // halves while it is long. Each run has its own heap, and writes only
+    // the lists of its own cities.
+    private class Search extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private int first;
+        private int last;
+        //Max-heap of the nearest cities found so far, farthest on top
+        private int[] heapIds;
+        private double[] heapDistances;
+        private int heapSize;
+
+        public Search(int first, int last)
+        {
+            this.first = first;
+            this.last = last;
+        }
+
+        protected void compute()
+        {
+            if(last - first <= GRAIN){
+                heapIds = new int[k];
+                heapDistances = new double[k];
+                //in grid order, so neighboring searches look at the same cells
+                for(int i = first; i < last; i++)
+                    search(cellCities[i]);
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new Search(first, middle), new Search(middle, last));
+        }
+
+        // list the k nearest other cities of the city
+        private void search(int city)
+        {
+            double x = points.getX(city);
+            double y = points.getY(city);
+            int cx = column(x);
+            int cy = row(y);
+            heapSize = 0;
+            for(int r = 0; ; r++){
+                int x1 = cx - r;
+                int x2 = cx + r;
+                int y1 = cy - r;
+                int y2 = cy + r;
+                //walk the ring of cells r steps away from the city's cell
+                for(int gx = Math.max(x1, 0); gx <= Math.min(x2, columns - 1); gx++){
+                    if(y1 >= 0)
+                        visit(y1 * columns + gx, city, x, y);
+                    if(r > 0 && y2 < rows)
+                        visit(y2 * columns + gx, city, x, y);
+                }
+                for(int gy = Math.max(y1 + 1, 0); gy <= Math.min(y2 - 1, rows - 1); gy++){
+                    if(x1 >= 0)
+                        visit(gy * columns + x1, city, x, y);
+                    if(x2 < columns)
+                        visit(gy * columns + x2, city, x, y);
+                }
+                if(x1 <= 0 && y1 <= 0 && x2 >= columns - 1 && y2 >= rows - 1)
+                    break;
+                //every city not seen yet is at least this far away
+                double reach = Double.POSITIVE_INFINITY;
+                if(x1 > 0)
+                    reach = Math.min(reach, x - (x0 + x1 * cellSize));
+                if(x2 < columns - 1)
+                    reach = Math.min(reach, x0 + (x2 + 1) * cellSize - x);
+                if(y1 > 0)
+                    reach = Math.min(reach, y - (y0 + y1 * cellSize));
+                if(y2 < rows - 1)
+                    reach = Math.min(reach, y0 + (y2 + 1) * cellSize - y);
+                if(heapSize == k && reach > heapDistances[0])
+                    break;
+            }
+
+            //take the heap apart farthest first to list the cities nearest first
+            int base = city * k;
+            for(int i = k - 1; i >= 0; i--){
+                candidates[base + i] = heapIds[0];
+                pop();
+            }
+        }
+
+        // offer every city of the cell to the heap
+        private void visit(int cell, int city, double x, double y)
+        {
+            for(int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++){
+                int other = cellCities[i];
+                if(other == city)
+                    continue;
+                double distance = PointStore.distance(x, y, points.getX(other), points.getY(other));
+                if(heapSize < k){
+                    push(other, distance);
+                } else if(after(heapIds[0], heapDistances[0], other, distance)){
+                    pop();
+                    push(other, distance);
+                }
+            }
+        }
+
+        // does city a at distance da come after city b at distance db in the lists
+        private boolean after(int a, double da, int b, double db)
+        {
+            return da > db || (da == db && a > b);
+        }
+
+        private void push(int id, double distance)
+        {
+            int i = heapSize++;
+            while(i > 0){
+                int parent = (i - 1) / 2;
+                if(!after(id, distance, heapIds[parent], heapDistances[parent]))
+                    break;
+                heapIds[i] = heapIds[parent];
+                heapDistances[i] = heapDistances[parent];
+                i = parent;
+            }
+            heapIds[i] = id;
+            heapDistances[i] = distance;
+        }
+
+        // drop the farthest city from the heap
+        private void pop()
+        {
+            heapSize--;
+            int id = heapIds[heapSize];
+            double distance = heapDistances[heapSize];
+            int i = 0;
+            while(2 * i + 1 < heapSize){
+                int child = 2 * i + 1;
+                if(child + 1 < heapSize && after(heapIds[child + 1], heapDistances[child + 1], heapIds[child], heapDistances[child]))
+                    child++;
+                if(!after(heapIds[child], heapDistances[child], id, distance))
+                    break;
+                heapIds[i] = heapIds[child];
+                heapDistances[i] = heapDistances[child];
+                i = child;
+            }
+            heapIds[i] = id;
+            heapDistances[i] = distance;
+        }
+    }
+}
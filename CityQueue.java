@@ -0,0 +1,60 @@
+/**
+ * The cities a local search still has to look at, in first in first out
+ * order. A city is in the queue exactly when its "don't-look bit" is off:
+ * taking it out sets the bit, and a move that touches it turns the bit off
+ * again by putting it back. A city is never in the queue twice.
+ *
+ * @author
+ * @version
+ */
+
+class CityQueue
+{
+    // instance variables
+    //Ring buffer of the queued cities, starting at head
+    private int[] queue;
+    private int head;
+    private int count;
+    //Whether each city of the store is in the queue
+    private boolean[] queued;
+
+    // constructor for a queue of up to capacity cities taken from a store with
+    // the given number of cities
+    public CityQueue(int capacity, int storeSize)
+    {
+        queue = new int[Math.max(capacity, 1)];
+        queued = new boolean[storeSize];
+        head = 0;
+        count = 0;
+    }
+
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    // put the city at the back of the queue, unless it is already waiting
+    public void push(int city)
+    {
+        if(queued[city])
+            return;
+        queued[city] = true;
+        int tail = head + count;
+        if(tail >= queue.length)
+            tail -= queue.length;
+        queue[tail] = city;
+        count++;
+    }
+
+    // take the city at the front of the queue
+    public int poll()
+    {
+        int city = queue[head];
+        head++;
+        if(head == queue.length)
+            head = 0;
+        count--;
+        queued[city] = false;
+        return city;
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The convex hull of the cities of a PointStore, with Andrew's monotone
+ * chain: in order of x (then y) the lower chain only ever turns left and the
+ * upper chain only ever turns right, and together they make up the hull.
+ *
+ * The cities are split in halves, the chains of each half are found, and
+ * the chains of two halves are merged in order of x and straightened out
+ * again in one pass, since a city off the chain of its half cannot be on
+ * the chain of the whole. That is a merge sort that drops every city off
+ * the hull as it goes, O(n log n) in all, and the halves run on a
+ * ForkJoinPool until they get small.
+ *
+ * @author
+ * @version
+ */
+
+public class ConvexHull extends RecursiveTask<int[][]>
+{
+    // the task is Serializable through ForkJoinTask
+    private static final long serialVersionUID = 1L;
+    // halves with fewer cities than this are not split across threads
+    private static final int GRAIN = 4096;
+
+    // instance variables
+    //Coordinates of the cities
+    private PointStore points;
+    //The cities this task finds the chains of, from first up to but not including last
+    private int first;
+    private int last;
+
+    private ConvexHull(PointStore points, int first, int last)
+    {
+        this.points = points;
+        this.first = first;
+        this.last = last;
+    }
+
+    // the cities on the hull of the store counterclockwise, starting with the
+    // one lowest in x (then y), without cities in the middle of an edge
+    public static int[] hull(PointStore points)
+    {
+        return hull(points, ForkJoinPool.commonPool());
+    }
+
+    // the same, running on the given pool
+    public static int[] hull(PointStore points, ForkJoinPool pool)
+    {
+        if(points.size() == 0)
+            return new int[0];
+        int[][] chains = pool.invoke(new ConvexHull(points, 0, points.size()));
+        int[] lower = chains[0];
+        int[] upper = chains[1];
+        //the lower chain left to right, then the upper one back, each
+        //without the city the other one starts with
+        int[] hull = new int[Math.max(lower.length + upper.length - 2, 1)];
+        int count = 0;
+        for(int i = 0; i < lower.length - 1; i++)
+            hull[count++] = lower[i];
+        for(int i = upper.length - 1; i > 0; i--)
+            hull[count++] = upper[i];
+        //every city in the same place
+        if(count == 0)
+            hull[count++] = lower[0];
+        return hull;
+    }
+
+    // the lower and upper chains of the cities, splitting in halves until they are small
+    protected int[][] compute()
+    {
+        if(last - first <= GRAIN)
+            return chains(first, last);
+        int middle = (first + last) >>> 1;
+        ConvexHull lower = new ConvexHull(points, first, middle);
+        ConvexHull upper = new ConvexHull(points, middle, last);
+        lower.fork();
+        int[][] right = upper.compute();
+        int[][] left = lower.join();
+        return merge(left, right);
+    }
+
+    // the same on this thread
+    private int[][] chains(int from, int to)
+    {
+        if(to - from == 1)
+            return new int[][] { { from }, { from } };
+        int middle = (from + to) >>> 1;
+        return merge(chains(from, middle), chains(middle, to));
+    }
+
+    // the chains of two sets of cities from the chains of each
+    private int[][] merge(int[][] a, int[][] b)
+    {
+        return new int[][] { chain(a[0], b[0], 1), chain(a[1], b[1], -1) };
+    }
+
+    // merge two chains in order of x (then y) and keep the cities where it
+    // turns the given way (1 left for the lower chain, -1 right for the upper)
+    private int[] chain(int[] a, int[] b, int turn)
+    {
+        int[] chain = new int[a.length + b.length];
+        int top = 0;
+        int i = 0;
+        int j = 0;
+        while(i < a.length || j < b.length){
+            int city;
+            if(j == b.length || (i < a.length && before(a[i], b[j])))
+                city = a[i++];
+            else
+                city = b[j++];
+            while(top >= 2 && turn * cross(chain[top - 2], chain[top - 1], city) <= 0)
+                top--;
+            chain[top++] = city;
+        }
+        return Arrays.copyOf(chain, top);
+    }
+
+    // does city a come before city b in order of x, then y
+    private boolean before(int a, int b)
+    {
+        double ax = points.getX(a);
+        double bx = points.getX(b);
+        return ax < bx || (ax == bx && points.getY(a) < points.getY(b));
+    }
+
+    // twice the signed area of the triangle o, a, b: positive when it turns left
+    private double cross(int o, int a, int b)
+    {
+        double ox = points.getX(o);
+        double oy = points.getY(o);
+        return (points.getX(a) - ox) * (points.getY(b) - oy) - (points.getY(a) - oy) * (points.getX(b) - ox);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * The loops that price every slot of a tour against one location, over
+ * coordinates kept in flat double arrays: the distance to every point, the
+ * nearest point and the cheapest edge to insert into. ScalarKernels runs
+ * them one slot at a time. VectorKernels (in the vector folder, as it needs
+ * the jdk.incubator.vector module to compile and run) runs them 4 or 8 slots
+ * at a time with the Vector API, with the same arithmetic in the same order,
+ * so both give the very same answers.
+ *
+ * get() hands out VectorKernels when its class is on the class path and the
+ * module is there, and ScalarKernels otherwise. Like KdTree and EdgeGrid,
+ * kernels keep the number of ties of their last query for ties(), so every
+ * thread scans with kernels of its own.
+ *
+ * @author
+ * @version
+ */
+
+public abstract class DistanceKernels
+{
+    // name of the class with the vector loops
+    private static final String VECTOR_KERNELS = "VectorKernels";
+    // kernels of the kind get() hands out, found once
+    private static final DistanceKernels KERNELS = load();
+
+    // instance variables
+    //Number of slots that were just as near or cheap in the last query
+    protected int ties;
+
+    // new kernels of the fastest kind that runs here
+    public static DistanceKernels get()
+    {
+        return KERNELS.create();
+    }
+
+    // number of slots that were exactly as near (or as cheap) as the answer
+    // of the last nearest or cheapest query
+    public int ties()
+    {
+        return ties;
+    }
+
+    // new kernels of the same kind
+    protected abstract DistanceKernels create();
+
+    // the distance from (x,y) to every point from slot first up to but not
+    // including last, into the same slots of out
+    public abstract void distances(double[] xs, double[] ys, int first, int last, double x, double y, double[] out);
+
+    // the first slot from first up to but not including last whose point is
+    // nearest (x,y)
+    public abstract int nearest(double[] xs, double[] ys, int first, int last, double x, double y);
+
+    // the first slot whose edge, from (xs,ys) to (nextXs,nextYs), is cheapest
+    // to insert (x,y) into
+    public abstract int cheapest(double[] xs, double[] ys, double[] nextXs, double[] nextYs, int first, int last,
+                                 double x, double y);
+
+    // VectorKernels if it loads and gives the same answers as ScalarKernels
+    // on a small case, ScalarKernels if not
+    private static DistanceKernels load()
+    {
+        DistanceKernels scalar = new ScalarKernels();
+        try{
+            DistanceKernels vector = (DistanceKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+            double[] xs = new double[19];
+            double[] ys = new double[19];
+            for(int i = 0; i < xs.length; i++){
+                xs[i] = (i * 7) % 5;
+                ys[i] = (i * 3) % 4;
+            }
+            if(vector.nearest(xs, ys, 1, 19, 2, 1) != scalar.nearest(xs, ys, 1, 19, 2, 1) || vector.ties() != scalar.ties())
+                return scalar;
+            if(vector.cheapest(xs, ys, ys, xs, 0, 17, 1, 2) != scalar.cheapest(xs, ys, ys, xs, 0, 17, 1, 2)
+               || vector.ties() != scalar.ties())
+                return scalar;
+            return vector;
+        } catch(ReflectiveOperationException | LinkageError | RuntimeException e){
+            //not compiled, or the module is missing
+            return scalar;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Distances between the cities of a PointStore, by id. The PointStore
+ * answers from the coordinates every time, and a DistanceMatrix looks the
+ * answer up in a table worked out once. PointStore.distances() gives the
+ * solvers a DistanceMatrix when the table fits the store's memory budget,
+ * and the store itself otherwise.
+ *
+ * @author
+ * @version
+ */
+
+public interface DistanceOracle
+{
+    //return the number of cities
+    public int size();
+
+    // distance between two cities
+    public double distance(int a, int b);
+}
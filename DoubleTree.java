@@ -0,0 +1,207 @@
+import java.util.*;
+
+/**
+ * Builds a tour with the double-tree heuristic: the cities are visited in
+ * the order a depth first walk of their Euclidean minimum spanning tree
+ * first reaches them. The walk crosses every tree edge twice, and skipping
+ * the cities already seen only makes it shorter, so the tour is at most
+ * twice as long as the tree, which is shorter than the best tour. The tour
+ * is never more than twice the optimal length.
+ *
+ * The tree is built with Prim's algorithm. A tree city's nearest city
+ * outside the tree is the first one in its sorted list of nearest neighbors
+ * that is not in the tree yet, so nearly every step is a list lookup. Only a
+ * city whose whole list already joined the tree asks a KdTree that holds the
+ * cities still outside it. Either way the answer is exact, so this is the
+ * true minimum spanning tree, built in about O(n log n).
+ *
+ * @author
+ * @version
+ */
+
+public class DoubleTree
+{
+    // number of nearest neighbors listed for every city
+    private static final int DEFAULT_NEIGHBORS = 10;
+    // marks a missing city
+    private static final int NONE = -1;
+
+    // instance variables
+    //Coordinates of the cities, the distances between them and the
+    //candidates for every one of them
+    private PointStore points;
+    private DistanceOracle distances;
+    private CandidateLists neighbors;
+    //Whether each city is in the tree, and how far down its list is known to be
+    private boolean[] inTree;
+    private int[] scanned;
+    //The cities outside the tree
+    private KdTree outside;
+    //Binary min-heap of the edges waiting to join the tree: length, tree city and outside city
+    private double[] heapLengths;
+    private int[] heapFrom;
+    private int[] heapTo;
+    private int heapSize;
+    //First child and next sibling of every city in the tree
+    private int[] children;
+    private int[] siblings;
+
+    private DoubleTree(PointStore points, CandidateLists neighbors)
+    {
+        this.points = points;
+        distances = points.distances();
+        this.neighbors = neighbors;
+        int n = points.size();
+        inTree = new boolean[n];
+        scanned = new int[n];
+        heapLengths = new double[16];
+        heapFrom = new int[16];
+        heapTo = new int[16];
+        heapSize = 0;
+        children = new int[n];
+        siblings = new int[n];
+        Arrays.fill(children, NONE);
+        Arrays.fill(siblings, NONE);
+    }
+
+    // a Tour over every city of the store, built with the double-tree heuristic
+    public static Tour tour(PointStore points)
+    {
+        Tour tour = new Tour(points);
+        build(tour);
+        return tour;
+    }
+
+    // add every city of the tour's store to it in double-tree order (the tour
+    // should not have any of them yet)
+    public static void build(TourInterface tour)
+    {
+        build(tour, tour.getPoints().candidates(DEFAULT_NEIGHBORS));
+    }
+
+    // the same with the given candidate lists, which must cover the store
+    public static void build(TourInterface tour, CandidateLists neighbors)
+    {
+        PointStore points = tour.getPoints();
+        if(points.size() == 0)
+            return;
+        DoubleTree tree = new DoubleTree(points, neighbors);
+        tree.span();
+        for(int city : tree.walk())
+            tour.add(city);
+    }
+
+    // grow the minimum spanning tree from city 0
+    private void span()
+    {
+        int n = points.size();
+        outside = new KdTree(n);
+        for(int city = 1; city < n; city++)
+            outside.insert(city, points.getX(city), points.getY(city));
+        inTree[0] = true;
+        offer(0);
+        for(int joined = 1; joined < n; ){
+            int from = heapFrom[0];
+            int to = heapTo[0];
+            pop();
+            //another city got there first, look again from the same tree city
+            if(inTree[to]){
+                offer(from);
+                continue;
+            }
+            inTree[to] = true;
+            outside.remove(to);
+            siblings[to] = children[from];
+            children[from] = to;
+            joined++;
+            offer(to);
+            offer(from);
+        }
+    }
+
+    // put the edge from the tree city to its nearest city outside the tree on the heap
+    private void offer(int city)
+    {
+        int k = neighbors.neighbors();
+        while(scanned[city] < k && inTree[neighbors.get(city, scanned[city])])
+            scanned[city]++;
+        int nearest;
+        if(scanned[city] < k)
+            nearest = neighbors.get(city, scanned[city]);
+        else
+            nearest = outside.nearest(points.getX(city), points.getY(city));
+        if(nearest != NONE)
+            push(distances.distance(city, nearest), city, nearest);
+    }
+
+    // the cities in the order a depth first walk from city 0 first reaches them
+    private int[] walk()
+    {
+        int n = points.size();
+        int[] order = new int[n];
+        int[] stack = new int[n];
+        int top = 0;
+        int count = 0;
+        stack[top++] = 0;
+        while(top > 0){
+            int city = stack[--top];
+            order[count++] = city;
+            //push the children last to first so they come off first to last
+            int first = top;
+            for(int c = children[city]; c != NONE; c = siblings[c])
+                stack[top++] = c;
+            for(int i = first, j = top - 1; i < j; i++, j--){
+                int t = stack[i];
+                stack[i] = stack[j];
+                stack[j] = t;
+            }
+        }
+        return order;
+    }
+
+    private void push(double length, int from, int to)
+    {
+        if(heapSize == heapLengths.length){
+            heapLengths = Arrays.copyOf(heapLengths, 2 * heapSize);
+            heapFrom = Arrays.copyOf(heapFrom, 2 * heapSize);
+            heapTo = Arrays.copyOf(heapTo, 2 * heapSize);
+        }
+        int i = heapSize++;
+        while(i > 0){
+            int parent = (i - 1) / 2;
+            if(heapLengths[parent] <= length)
+                break;
+            heapLengths[i] = heapLengths[parent];
+            heapFrom[i] = heapFrom[parent];
+            heapTo[i] = heapTo[parent];
+            i = parent;
+        }
+        heapLengths[i] = length;
+        heapFrom[i] = from;
+        heapTo[i] = to;
+    }
+
+    // drop the shortest edge from the heap
+    private void pop()
+    {
+        heapSize--;
+        double length = heapLengths[heapSize];
+        int from = heapFrom[heapSize];
+        int to = heapTo[heapSize];
+        int i = 0;
+        while(2 * i + 1 < heapSize){
+            int child = 2 * i + 1;
+            if(child + 1 < heapSize && heapLengths[child + 1] < heapLengths[child])
+                child++;
+            if(heapLengths[child] >= length)
+                break;
+            heapLengths[i] = heapLengths[child];
+            heapFrom[i] = heapFrom[child];
+            heapTo[i] = heapTo[child];
+            i = child;
+        }
+        heapLengths[i] = length;
+        heapFrom[i] = from;
+        heapTo[i] = to;
+    }
+}
@@ -0,0 +1,370 @@
+import java.util.*;
+
+/**
+ * A uniform grid over the edges of a tour, used to find the edge where a new
+ * point is cheapest to insert without looking at every edge. Each edge is
+ * identified by an int id (the tour uses the id of the point the edge starts
+ * at) and is filed under every cell its bounding box overlaps.
+ *
+ * A query searches rings of cells around the point. An edge of length L whose
+ * cells are all at least r away cannot cost less than sqrt(L*L + 4*r*r) - L
+ * (the point would lie outside the ellipse with the edge's endpoints as
+ * foci), so the search stops as soon as that bound for the longest edge
+ * exceeds the best cost found. The answer is exact, not an approximation.
+ *
+ * The grid is rebuilt over the current edges whenever the number of edges
+ * doubles or an edge leaves the area it covers.
+ *
+ * @author
+ * @version
+ */
+
+public class EdgeGrid
+{
+    // starting length of the arrays, they double whenever they fill up
+    private static final int INITIAL_CAPACITY = 16;
+    // number of cells the grid aims for per edge
+    private static final double CELLS_PER_EDGE = 2.0;
+
+    // instance variables
+    //Number of edges in the grid
+    private int count;
+    //Endpoints, length and presence of every edge, indexed by edge id
+    private double[] ax;
+    private double[] ay;
+    private double[] bx;
+    private double[] by;
+    private double[] lengths;
+    private boolean[] live;
+    //Query number that last looked at each edge, so an edge filed in
+    //several cells is only priced once per query
+    private int[] seen;
+    private int query;
+    //Upper bound on the length of every edge in the grid
+    private double maxLength;
+
+    //Lower left corner, cell size and number of columns and rows of the grid
+    private double x0;
+    private double y0;
+    private double cellSize;
+    private int columns;
+    private int rows;
+    //Ids of the edges filed under each cell, and how many there are
+    private int[][] cells;
+    private int[] cellCounts;
+    //Number of edges when the grid was last laid out
+    private int builtFor;
+    //Set when the grid has to be laid out again before the next query
+    private boolean stale;
+    //Box every edge is known to stay inside, once reserve has been called
+    private boolean reserved;
+    private double boxMinX;
+    private double boxMinY;
+    private double boxMaxX;
+    private double boxMaxY;
+
+    //Result of the last cheapest query
+    private int bestId;
+    private double bestCost;
+    private int ties;
+
+    // constructor
+    public EdgeGrid()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    // constructor that sizes the grid for the given number of edges up front
+    public EdgeGrid(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        ax = new double[capacity];
+        ay = new double[capacity];
+        bx = new double[capacity];
+        by = new double[capacity];
+        lengths = new double[capacity];
+        live = new boolean[capacity];
+        seen = new int[capacity];
+        count = 0;
+        maxLength = 0;
+        stale = true;
+    }
+
+    //return the number of edges in the grid
+    public int size()
+    {
+        return count;
+    }
+
+    // add the edge from (x1,y1) to (x2,y2) under the given id, replacing any
+    // edge that already has that id
+    public void set(int id, double x1, double y1, double x2, double y2)
+    {
+        if(id >= live.length)
+            grow(Math.max(id + 1, 2 * live.length));
+        if(live[id]){
+            file(id, false);
+        } else{
+            live[id] = true;
+            count++;
+        }
+        ax[id] = x1;
+        ay[id] = y1;
+        bx[id] = x2;
+        by[id] = y2;
+        lengths[id] = PointStore.distance(x1, y1, x2, y2);
+        maxLength = Math.max(maxLength, lengths[id]);
+
+        if(count > 2 * builtFor || !inside(x1, y1) || !inside(x2, y2))
+            stale = true;
+        if(!stale)
+            file(id, true);
+    }
+
+    // take the edge with the given id out of the grid, and tell whether it was in it
+    public boolean remove(int id)
+    {
+        if(id < 0 || id >= live.length || !live[id])
+            return false;
+        file(id, false);
+        live[id] = false;
+        count--;
+        return true;
+    }
+
+    // return the id of the edge that is cheapest to insert (x,y) into, that is
+    // the one with the smallest dist(p,a) + dist(p,b) - dist(a,b), or -1 if
+    // there are no edges
+    // the cost and the number of edges with that same cost are kept for
+    // cheapestCost() and ties()
+    public int cheapest(double x, double y)
+    {
+        bestId = -1;
+        bestCost = Double.POSITIVE_INFINITY;
+        ties = 0;
+        if(count == 0)
+            return bestId;
+        if(stale)
+            layout();
+        query++;
+
+        int cx = column(x);
+        int cy = row(y);
+        for(int k = 0; ; k++){
+            int x1 = cx - k;
+            int x2 = cx + k;
+            int y1 = cy - k;
+            int y2 = cy + k;
+            //walk the ring of cells k steps away from the center cell
+            for(int gx = Math.max(x1, 0); gx <= Math.min(x2, columns - 1); gx++){
+                if(y1 >= 0)
+                    visit(gx, y1, x, y);
+                if(k > 0 && y2 < rows)
+                    visit(gx, y2, x, y);
+            }
+            for(int gy = Math.max(y1 + 1, 0); gy <= Math.min(y2 - 1, rows - 1); gy++){
+                if(x1 >= 0)
+                    visit(x1, gy, x, y);
+                if(x2 < columns)
+                    visit(x2, gy, x, y);
+            }
+            if(x1 <= 0 && y1 <= 0 && x2 >= columns - 1 && y2 >= rows - 1)
+                break;
+
+            //every edge not seen yet lies in cells at least r away
+            double r = Double.POSITIVE_INFINITY;
+            if(x1 > 0)
+                r = Math.min(r, x - (x0 + x1 * cellSize));
+            if(x2 < columns - 1)
+                r = Math.min(r, x0 + (x2 + 1) * cellSize - x);
+            if(y1 > 0)
+                r = Math.min(r, y - (y0 + y1 * cellSize));
+            if(y2 < rows - 1)
+                r = Math.min(r, y0 + (y2 + 1) * cellSize - y);
+            if(r > 0 && bestId != -1){
+                //sqrt(L*L + 4*r*r) - L, written so it does not cancel out
+                double bound = 4 * r * r / (Math.sqrt(maxLength * maxLength + 4 * r * r) + maxLength);
+                //the slack covers rounding in the costs themselves
+                if(bound > bestCost + 1e-9 * (maxLength + r + bestCost))
+                    break;
+            }
+        }
+        return bestId;
+    }
+
+    // cost found by the last cheapest query
+    public double cheapestCost()
+    {
+        return bestCost;
+    }
+
+    // number of edges that cost exactly cheapestCost() in the last query
+    public int ties()
+    {
+        return ties;
+    }
+
+    // price every edge filed under the cell at (gx,gy) that this query has not seen
+    private void visit(int gx, int gy, double x, double y)
+    {
+        int cell = gy * columns + gx;
+        int[] ids = cells[cell];
+        for(int i = cellCounts[cell] - 1; i >= 0; i--){
+            int id = ids[i];
+            if(seen[id] == query)
+                continue;
+            seen[id] = query;
+            double cost = PointStore.distance(x, y, ax[id], ay[id]) + PointStore.distance(x, y, bx[id], by[id])
+                - lengths[id];
+            if(cost < bestCost){
+                bestCost = cost;
+                bestId = id;
+                ties = 1;
+            } else if(cost == bestCost){
+                ties++;
+            }
+        }
+    }
+
+    // make room for the given number of edges, all of them inside the box
+    // from (minX,minY) to (maxX,maxY), so the grid is only laid out again as
+    // the number of edges doubles and never because one lands outside it
+    public void reserve(int edges, double minX, double minY, double maxX, double maxY)
+    {
+        if(edges > live.length)
+            grow(edges);
+        boxMinX = minX;
+        boxMinY = minY;
+        boxMaxX = maxX;
+        boxMaxY = maxY;
+        reserved = true;
+        stale = true;
+    }
+
+    // lay the grid out again over the bounding box of the current edges
+    private void layout()
+    {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        if(reserved){
+            minX = boxMinX;
+            minY = boxMinY;
+            maxX = boxMaxX;
+            maxY = boxMaxY;
+        }
+        maxLength = 0;
+        for(int id = 0; id < live.length; id++){
+            if(!live[id])
+                continue;
+            minX = Math.min(minX, Math.min(ax[id], bx[id]));
+            minY = Math.min(minY, Math.min(ay[id], by[id]));
+            maxX = Math.max(maxX, Math.max(ax[id], bx[id]));
+            maxY = Math.max(maxY, Math.max(ay[id], by[id]));
+            maxLength = Math.max(maxLength, lengths[id]);
+        }
+
+        double w = Math.max(maxX - minX, 1e-9);
+        double h = Math.max(maxY - minY, 1e-9);
+        double extent = Math.max(w, h);
+        w = Math.max(w, extent / 64);
+        h = Math.max(h, extent / 64);
+        //leave room on every side so a tour that keeps growing outward does
+        //not force a new layout on every insert
+        double pad = reserved ? 0.01 : 0.5;
+        x0 = minX - w * pad;
+        y0 = minY - h * pad;
+        w *= 1 + 2 * pad;
+        h *= 1 + 2 * pad;
+        cellSize = Math.sqrt(w * h / (CELLS_PER_EDGE * count));
+        columns = Math.max(1, (int) Math.ceil(w / cellSize));
+        rows = Math.max(1, (int) Math.ceil(h / cellSize));
+
+        cells = new int[columns * rows][];
+        cellCounts = new int[columns * rows];
+        builtFor = count;
+        stale = false;
+        for(int id = 0; id < live.length; id++){
+            if(live[id])
+                file(id, true);
+        }
+    }
+
+    // add the edge to (or take it out of) every cell its bounding box overlaps
+    private void file(int id, boolean add)
+    {
+        if(stale)
+            return;
+        int gx1 = column(Math.min(ax[id], bx[id]));
+        int gx2 = column(Math.max(ax[id], bx[id]));
+        int gy1 = row(Math.min(ay[id], by[id]));
+        int gy2 = row(Math.max(ay[id], by[id]));
+        for(int gy = gy1; gy <= gy2; gy++){
+            for(int gx = gx1; gx <= gx2; gx++){
+                int cell = gy * columns + gx;
+                if(add)
+                    addTo(cell, id);
+                else
+                    removeFrom(cell, id);
+            }
+        }
+    }
+
+    private void addTo(int cell, int id)
+    {
+        int[] ids = cells[cell];
+        if(ids == null){
+            ids = new int[4];
+            cells[cell] = ids;
+        } else if(cellCounts[cell] == ids.length){
+            ids = Arrays.copyOf(ids, 2 * ids.length);
+            cells[cell] = ids;
+        }
+        ids[cellCounts[cell]++] = id;
+    }
+
+    private void removeFrom(int cell, int id)
+    {
+        int[] ids = cells[cell];
+        int n = cellCounts[cell];
+        for(int i = 0; i < n; i++){
+            if(ids[i] == id){
+                ids[i] = ids[n - 1];
+                cellCounts[cell] = n - 1;
+                return;
+            }
+        }
+    }
+
+    // is (x,y) inside the area the grid covers
+    private boolean inside(double x, double y)
+    {
+        return !stale && x >= x0 && y >= y0 && x <= x0 + columns * cellSize && y <= y0 + rows * cellSize;
+    }
+
+    // column of the cell containing x, clamped to the grid
+    private int column(double x)
+    {
+        int gx = (int) ((x - x0) / cellSize);
+        return Math.max(0, Math.min(columns - 1, gx));
+    }
+
+    // row of the cell containing y, clamped to the grid
+    private int row(double y)
+    {
+        int gy = (int) ((y - y0) / cellSize);
+        return Math.max(0, Math.min(rows - 1, gy));
+    }
+
+    private void grow(int capacity)
+    {
+        ax = Arrays.copyOf(ax, capacity);
+        ay = Arrays.copyOf(ay, capacity);
+        bx = Arrays.copyOf(bx, capacity);
+        by = Arrays.copyOf(by, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        live = Arrays.copyOf(live, capacity);
+        seen = Arrays.copyOf(seen, capacity);
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.*;
+
+/**
+ * Builds a tour with the greedy edge heuristic: edges are taken shortest
+ * first, and an edge goes into the tour unless one of its cities already has
+ * two edges or it would close a cycle. The tour is usually 15-20% above
+ * optimal and, unlike the insertion heuristics, does not depend on the
+ * order the cities come in.
+ *
+ * Only the edges from every city to its 10 nearest neighbors are considered,
+ * which keeps the work at O(n log n), and a union-find over the cities finds
+ * the cycles. When those edges run out the tour is still in pieces (paths,
+ * or single cities). The same greedy pass then runs again over the free
+ * ends of the pieces and their nearest free ends, as long as it joins any.
+ * The few pieces left are joined by walking from the end of one piece to the
+ * nearest free end of another, found in a KdTree over the ends, until every
+ * piece is used and the last end joins the first.
+ *
+ * @author
+ * @version
+ */
+
+public class GreedyEdge
+{
+    // number of nearest neighbors of every city whose edges are considered
+    private static final int DEFAULT_NEIGHBORS = 10;
+    // marks a missing edge
+    private static final int NONE = -1;
+
+    // instance variables
+    //Coordinates of the cities and the distances between them
+    private PointStore points;
+    private DistanceOracle distances;
+    //The two cities every city is joined to so far, NONE where there is no edge
+    private int[] links;
+    //Union-find parent and size of every city, to tell whether two are in the same piece
+    private int[] parents;
+    private int[] sizes;
+    //Number of pieces the cities are in
+    private int pieces;
+
+    private GreedyEdge(PointStore points)
+    {
+        this.points = points;
+        distances = points.distances();
+        int n = points.size();
+        links = new int[2 * n];
+        Arrays.fill(links, NONE);
+        parents = new int[n];
+        sizes = new int[n];
+        for(int city = 0; city < n; city++){
+            parents[city] = city;
+            sizes[city] = 1;
+        }
+        pieces = n;
+    }
+
+    // a Tour over every city of the store, built with the greedy edge heuristic
+    public static Tour tour(PointStore points)
+    {
+        Tour tour = new Tour(points);
+        build(tour);
+        return tour;
+    }
+
+    // add every city of the tour's store to it in greedy edge order (the tour
+    // should not have any of them yet)
+    public static void build(TourInterface tour)
+    {
+        build(tour, tour.getPoints().candidates(DEFAULT_NEIGHBORS));
+    }
+
+    // the same with the given candidate lists, which must cover the store
+    public static void build(TourInterface tour, CandidateLists neighbors)
+    {
+        PointStore points = tour.getPoints();
+        if(points.size() == 0)
+            return;
+        GreedyEdge greedy = new GreedyEdge(points);
+        int[] cities = new int[points.size()];
+        for(int city = 0; city < cities.length; city++)
+            cities[city] = city;
+        greedy.match(cities, neighbors);
+        //match again among the free ends for as long as that joins pieces
+        while(greedy.pieces > 1){
+            int[] ends = greedy.ends();
+            double[] xs = new double[ends.length];
+            double[] ys = new double[ends.length];
+            for(int i = 0; i < ends.length; i++){
+                xs[i] = points.getX(ends[i]);
+                ys[i] = points.getY(ends[i]);
+            }
+            if(greedy.match(ends, new CandidateLists(new PointStore(xs, ys), neighbors.neighbors())) == 0)
+                break;
+        }
+        greedy.join();
+        for(int city : greedy.order())
+            tour.add(city);
+    }
+
+    // take the edges from the given cities to their listed neighbors shortest
+    // first, where the lists number the cities by their place in the array,
+    // and return how many went into the tour
+    private int match(int[] cities, CandidateLists neighbors)
+    {
+        int n = cities.length;
+        int k = neighbors.neighbors();
+        //every edge once, as the float bits of its length above its index,
+        //so sorting the longs sorts the edges by length rounded to a float
+        long[] edges = new long[n * k];
+        double[] lengths = new double[n * k];
+        int[] ends = new int[2 * n * k];
+        int m = 0;
+        for(int a = 0; a < n; a++){
+            for(int i = 0; i < k; i++){
+                int b = neighbors.get(a, i);
+                //an edge both cities list is taken from the lower id only
+                if(b < a && listed(neighbors, b, a))
+                    continue;
+                ends[2 * m] = cities[a];
+                ends[2 * m + 1] = cities[b];
+                lengths[m] = distances.distance(cities[a], cities[b]);
+                edges[m] = (long) Float.floatToIntBits((float) lengths[m]) << 32 | m;
+                m++;
+            }
+        }
+        Arrays.sort(edges, 0, m);
+        //rounding never swaps two lengths, but it can make them equal, so
+        //every run of edges with the same float goes by exact length (ties by index)
+        for(int i = 0, j; i < m; i = j){
+            for(j = i + 1; j < m && (edges[j] >>> 32) == (edges[i] >>> 32); j++)
+                ;
+            if(j - i > 1)
+                sortRun(edges, lengths, i, j);
+        }
+
+        int joined = 0;
+        for(int i = 0; i < m; i++){
+            int e = (int) edges[i];
+            int a = ends[2 * e];
+            int b = ends[2 * e + 1];
+            if(links[2 * a + 1] != NONE || links[2 * b + 1] != NONE)
+                continue;
+            if(!union(a, b))
+                continue;
+            link(a, b);
+            joined++;
+        }
+        pieces -= joined;
+        return joined;
+    }
+
+    // sort the edges from i up to but not including j by exact length, then
+    // by index, with an insertion sort as the runs are short
+    private static void sortRun(long[] edges, double[] lengths, int i, int j)
+    {
+        for(int a = i + 1; a < j; a++){
+            long e = edges[a];
+            double length = lengths[(int) e];
+            int b = a - 1;
+            while(b >= i && (lengths[(int) edges[b]] > length
+                             || (lengths[(int) edges[b]] == length && (int) edges[b] > (int) e))){
+                edges[b + 1] = edges[b];
+                b--;
+            }
+            edges[b + 1] = e;
+        }
+    }
+
+    // the cities that have fewer than two edges
+    private int[] ends()
+    {
+        int n = points.size();
+        int count = 0;
+        for(int city = 0; city < n; city++){
+            if(links[2 * city + 1] == NONE)
+                count++;
+        }
+        int[] ends = new int[count];
+        count = 0;
+        for(int city = 0; city < n; city++){
+            if(links[2 * city + 1] == NONE)
+                ends[count++] = city;
+        }
+        return ends;
+    }
+
+    // is b one of the listed neighbors of a
+    private static boolean listed(CandidateLists neighbors, int a, int b)
+    {
+        for(int i = 0; i < neighbors.neighbors(); i++){
+            if(neighbors.get(a, i) == b)
+                return true;
+        }
+        return false;
+    }
+
+    // join the pieces left by match into one cycle, going from the end of
+    // each piece to the nearest free end of another
+    private void join()
+    {
+        int[] free = ends();
+        KdTree ends = new KdTree(free.length);
+        for(int city : free)
+            ends.insert(city, points.getX(city), points.getY(city));
+        int first = free[0];
+        //a path through every city only has to be closed
+        int last = otherEnd(first);
+        ends.remove(first);
+        ends.remove(last);
+        while(ends.size() > 0){
+            int next = ends.nearest(points.getX(last), points.getY(last));
+            int end = otherEnd(next);
+            ends.remove(next);
+            ends.remove(end);
+            link(last, next);
+            last = end;
+        }
+        if(points.size() > 1)
+            link(last, first);
+    }
+
+    // the city at the other end of the piece that ends at the given city
+    private int otherEnd(int city)
+    {
+        int previous = NONE;
+        int current = city;
+        while(true){
+            int next = links[2 * current] == previous ? links[2 * current + 1] : links[2 * current];
+            if(next == NONE)
+                return current;
+            previous = current;
+            current = next;
+        }
+    }
+
+    // walk the cycle from city 0
+    private int[] order()
+    {
+        int n = points.size();
+        int[] order = new int[n];
+        int previous = NONE;
+        int current = 0;
+        for(int i = 0; i < n; i++){
+            order[i] = current;
+            int next = links[2 * current] == previous ? links[2 * current + 1] : links[2 * current];
+            previous = current;
+            current = next;
+        }
+        return order;
+    }
+
+    // add the edge (a,b)
+    private void link(int a, int b)
+    {
+        links[links[2 * a] == NONE ? 2 * a : 2 * a + 1] = b;
+        links[links[2 * b] == NONE ? 2 * b : 2 * b + 1] = a;
+    }
+
+    // put a and b in the same piece, and tell whether they were in different ones
+    private boolean union(int a, int b)
+    {
+        a = find(a);
+        b = find(b);
+        if(a == b)
+            return false;
+        if(sizes[a] < sizes[b]){
+            int t = a;
+            a = b;
+            b = t;
+        }
+        parents[b] = a;
+        sizes[a] += sizes[b];
+        return true;
+    }
+
+    // the city that stands for the piece the given city is in
+    private int find(int city)
+    {
+        while(parents[city] != city){
+            parents[city] = parents[parents[city]];
+            city = parents[city];
+        }
+        return city;
+    }
+}
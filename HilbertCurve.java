@@ -0,0 +1,171 @@
+import java.util.*;
+
+/**
+ * Builds a tour by visiting the cities in the order a Hilbert curve passes
+ * through them. The curve fills the square over the drawing area and stays
+ * inside each quarter before moving on to the next, so cities next to each
+ * other on it are close together, and the tour comes out roughly 25% longer
+ * than a good one in O(n) time.
+ *
+ * Every city gets the position of its cell on a 65536 by 65536 grid along
+ * the curve as an unsigned 32-bit key, computed four levels at a time from a
+ * small table, and the keys are sorted with four passes of an 8-bit radix
+ * sort. Cities in the same cell keep their id order.
+ *
+ * @author
+ * @version
+ */
+
+public class HilbertCurve
+{
+    // the grid has 2^ORDER cells on each side
+    private static final int ORDER = 16;
+    private static final int SIDE = 1 << ORDER;
+    // levels of the curve looked up in the table at once
+    private static final int STEP_BITS = 4;
+    private static final int STEP_MASK = (1 << STEP_BITS) - 1;
+    private static final int DIGITS_MASK = (1 << (2 * STEP_BITS)) - 1;
+    private static final int[] STEPS = steps();
+    // bits sorted by every pass of the radix sort
+    private static final int RADIX_BITS = 8;
+
+    // a Tour over every city of the store, in the order of the curve
+    public static Tour tour(PointStore points)
+    {
+        Tour tour = new Tour(points);
+        for(int city : order(points))
+            tour.add(city);
+        return tour;
+    }
+
+    // the ids of every city of the store, in the order of the curve
+    public static int[] order(PointStore points)
+    {
+        int n = points.size();
+        //the square over the drawing area, or over the cities when the
+        //store has no size or some cities lie outside it
+        double minX = 0;
+        double minY = 0;
+        double maxX = points.getWidth();
+        double maxY = points.getHeight();
+        boolean inside = maxX > 0 && maxY > 0;
+        for(int city = 0; city < n && inside; city++){
+            double x = points.getX(city);
+            double y = points.getY(city);
+            inside = x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+        if(!inside){
+            minX = Double.POSITIVE_INFINITY;
+            minY = Double.POSITIVE_INFINITY;
+            maxX = Double.NEGATIVE_INFINITY;
+            maxY = Double.NEGATIVE_INFINITY;
+            for(int city = 0; city < n; city++){
+                minX = Math.min(minX, points.getX(city));
+                minY = Math.min(minY, points.getY(city));
+                maxX = Math.max(maxX, points.getX(city));
+                maxY = Math.max(maxY, points.getY(city));
+            }
+        }
+        double extent = Math.max(maxX - minX, maxY - minY);
+        double scale = extent > 0 ? (SIDE - 1) / extent : 0;
+
+        int[] keys = new int[n];
+        int[] cities = new int[n];
+        for(int city = 0; city < n; city++){
+            int gx = (int) ((points.getX(city) - minX) * scale);
+            int gy = (int) ((points.getY(city) - minY) * scale);
+            keys[city] = index(Math.max(0, Math.min(SIDE - 1, gx)), Math.max(0, Math.min(SIDE - 1, gy)));
+            cities[city] = city;
+        }
+        sort(keys, cities);
+        return cities;
+    }
+
+    // position of the cell (x,y) along the curve, as an unsigned int
+    public static int index(int x, int y)
+    {
+        int d = 0;
+        int state = 0;
+        for(int shift = ORDER - STEP_BITS; shift >= 0; shift -= STEP_BITS){
+            int step = STEPS[state << (2 * STEP_BITS) | ((x >>> shift) & STEP_MASK) << STEP_BITS | ((y >>> shift) & STEP_MASK)];
+            d = d << (2 * STEP_BITS) | (step & DIGITS_MASK);
+            state = step >>> (2 * STEP_BITS);
+        }
+        return d;
+    }
+
+    // The curve is drawn one level at a time: at each level the cell is in
+    // one of four quarters, which gives two bits of the index, and the
+    // quarter decides how the curve inside it is turned around (swapped
+    // and/or flipped, 2 bits of state). The table runs STEP_BITS levels for
+    // every state and every STEP_BITS bits of x and of y, and holds the index
+    // bits they give with the state after them above.
+    private static int[] steps()
+    {
+        int[] steps = new int[4 << (2 * STEP_BITS)];
+        for(int state = 0; state < 4; state++){
+            for(int bits = 0; bits < 1 << (2 * STEP_BITS); bits++){
+                int bx = bits >>> STEP_BITS;
+                int by = bits & STEP_MASK;
+                int s = state;
+                int digits = 0;
+                for(int b = STEP_BITS - 1; b >= 0; b--){
+                    boolean swap = (s & 1) != 0;
+                    int rx = ((swap ? by : bx) >>> b) & 1;
+                    int ry = ((swap ? bx : by) >>> b) & 1;
+                    if((s & 2) != 0){
+                        rx ^= 1;
+                        ry ^= 1;
+                    }
+                    digits = digits << 2 | ((3 * rx) ^ ry);
+                    //the lower quarters are turned: swapped, and flipped as well on the right
+                    if(ry == 0)
+                        s ^= (rx == 1) ? 3 : 1;
+                }
+                steps[state << (2 * STEP_BITS) | bits] = digits | s << (2 * STEP_BITS);
+            }
+        }
+        return steps;
+    }
+
+    // sort the cities by their unsigned keys, keeping the order of equal keys
+    private static void sort(int[] keys, int[] cities)
+    {
+        int n = keys.length;
+        if(n == 0)
+            return;
+        int[] sorted = cities;
+        int[] otherKeys = new int[n];
+        int[] otherCities = new int[n];
+        int[] counts = new int[1 << RADIX_BITS];
+        int mask = (1 << RADIX_BITS) - 1;
+        for(int shift = 0; shift < 32; shift += RADIX_BITS){
+            Arrays.fill(counts, 0);
+            for(int i = 0; i < n; i++)
+                counts[(keys[i] >>> shift) & mask]++;
+            //every key has the same digit here, nothing to move
+            if(counts[(keys[0] >>> shift) & mask] == n)
+                continue;
+            int sum = 0;
+            for(int b = 0; b < counts.length; b++){
+                int c = counts[b];
+                counts[b] = sum;
+                sum += c;
+            }
+            for(int i = 0; i < n; i++){
+                int j = counts[(keys[i] >>> shift) & mask]++;
+                otherKeys[j] = keys[i];
+                otherCities[j] = cities[i];
+            }
+            int[] t = keys;
+            keys = otherKeys;
+            otherKeys = t;
+            t = cities;
+            cities = otherCities;
+            otherCities = t;
+        }
+        //an odd number of passes that moved something leaves the result in the scratch array
+        if(cities != sorted)
+            System.arraycopy(cities, 0, sorted, 0, n);
+    }
+}
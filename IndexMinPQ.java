@@ -0,0 +1,161 @@
+import java.util.*;
+
+/**
+ * An indexed priority queue of double keys: every entry is an int index
+ * from 0 up to a fixed maximum, and the key of an index already in the queue
+ * can be changed in O(log n), which is what lets the insertion heuristics
+ * keep one entry per city and update it in place.
+ *
+ * A binary heap of indices, with the heap position of every index kept
+ * alongside. Of two equal keys the lower index comes out first, so the
+ * order never depends on the history of the heap.
+ *
+ * @author
+ * @version
+ */
+
+public class IndexMinPQ
+{
+    // instance variables
+    //Number of indices in the queue
+    private int count;
+    //Indices in heap order, starting at 0
+    private int[] heap;
+    //Position of every index in heap, -1 when it is not in the queue
+    private int[] positions;
+    //Key of every index
+    private double[] keys;
+
+    // constructor for a queue of the indices 0 to capacity - 1
+    public IndexMinPQ(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(positions, -1);
+        count = 0;
+    }
+
+    //return the number of indices in the queue
+    public int size()
+    {
+        return count;
+    }
+
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    // is the index in the queue
+    public boolean contains(int i)
+    {
+        return positions[i] != -1;
+    }
+
+    // add the index with the given key, it must not be in the queue already
+    public void insert(int i, double key)
+    {
+        if(contains(i))
+            throw new IllegalArgumentException("index " + i + " is already in the queue");
+        keys[i] = key;
+        positions[i] = count;
+        heap[count] = i;
+        count++;
+        up(count - 1);
+    }
+
+    // the index with the smallest key
+    public int minIndex()
+    {
+        if(count == 0)
+            throw new NoSuchElementException("the queue is empty");
+        return heap[0];
+    }
+
+    // the smallest key
+    public double minKey()
+    {
+        return keys[minIndex()];
+    }
+
+    // take the index with the smallest key out of the queue and return it
+    public int delMin()
+    {
+        int min = minIndex();
+        delete(min);
+        return min;
+    }
+
+    // the key of an index in the queue
+    public double keyOf(int i)
+    {
+        if(!contains(i))
+            throw new NoSuchElementException("index " + i + " is not in the queue");
+        return keys[i];
+    }
+
+    // give an index in the queue a new key, larger or smaller
+    public void changeKey(int i, double key)
+    {
+        if(!contains(i))
+            throw new NoSuchElementException("index " + i + " is not in the queue");
+        keys[i] = key;
+        up(positions[i]);
+        down(positions[i]);
+    }
+
+    // take an index out of the queue
+    public void delete(int i)
+    {
+        if(!contains(i))
+            throw new NoSuchElementException("index " + i + " is not in the queue");
+        int p = positions[i];
+        count--;
+        swap(p, count);
+        positions[i] = -1;
+        if(p < count){
+            up(p);
+            down(p);
+        }
+    }
+
+    // does the index at heap position a come out before the one at b
+    private boolean before(int a, int b)
+    {
+        double ka = keys[heap[a]];
+        double kb = keys[heap[b]];
+        return ka < kb || (ka == kb && heap[a] < heap[b]);
+    }
+
+    private void up(int p)
+    {
+        while(p > 0 && before(p, (p - 1) / 2)){
+            swap(p, (p - 1) / 2);
+            p = (p - 1) / 2;
+        }
+    }
+
+    private void down(int p)
+    {
+        while(2 * p + 1 < count){
+            int child = 2 * p + 1;
+            if(child + 1 < count && before(child + 1, child))
+                child++;
+            if(!before(child, p))
+                break;
+            swap(p, child);
+            p = child;
+        }
+    }
+
+    private void swap(int a, int b)
+    {
+        int t = heap[a];
+        heap[a] = heap[b];
+        heap[b] = t;
+        positions[heap[a]] = a;
+        positions[heap[b]] = b;
+    }
+}
@@ -0,0 +1,300 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a tour by divide and conquer, after Karp's partitioning scheme: the
+ * cities are cut in half at the median of the longer side of their bounding
+ * box, again and again, until every cell has at most a given number of
+ * cities. Every cell gets a tour of its own, and the tours of two halves are
+ * then stitched into one cycle.
+ *
+ * A cell is solved with the usual heuristics (insertSmallest, then 2-opt
+ * and Or-opt) on a PointStore of its own cities, so the indexes of a solver
+ * never grow past the cell size. The halves are solved on a ForkJoinPool,
+ * so the time goes down with the number of cores.
+ *
+ * Two tours are stitched by dropping one edge from each and joining the
+ * loose ends across. Only the cities of each tour nearest the line between
+ * the halves are tried: for each one on one side, its nearest such cities on
+ * the other side, both edges at each, both ways across. The cheapest
+ * exchange wins, with ties going to the first one found, so the result does
+ * not depend on the number of threads.
+ *
+ * @author
+ * @version
+ */
+
+public class KarpPartition extends RecursiveTask<int[]>
+{
+    // a ForkJoinTask can be serialized, so it carries a version
+    private static final long serialVersionUID = 1L;
+    // most cities in a cell that is solved on its own
+    public static final int DEFAULT_CELL_SIZE = 1000;
+    // cities of each tour nearest the cut that the stitch tries
+    private static final int BOUNDARY = 64;
+    // cities on the other side tried for each of them
+    private static final int CANDIDATES = 6;
+
+    // instance variables
+    //Coordinates of the cities
+    private PointStore points;
+    //The cities being split, shared by every task, which each only touch
+    //their own range from first up to but not including last
+    private int[] cities;
+    private int first;
+    private int last;
+    //Most cities in a cell
+    private int cellSize;
+
+    private KarpPartition(PointStore points, int[] cities, int first, int last, int cellSize)
+    {
+        this.points = points;
+        this.cities = cities;
+        this.first = first;
+        this.last = last;
+        this.cellSize = cellSize;
+    }
+
+    // a Tour over every city of the store, built from cells of at most
+    // DEFAULT_CELL_SIZE cities
+    public static Tour tour(PointStore points)
+    {
+        Tour tour = new Tour(points);
+        build(tour);
+        return tour;
+    }
+
+    // add every city of the tour's store to it in partition order (the tour
+    // should not have any of them yet)
+    public static void build(TourInterface tour)
+    {
+        for(int city : order(tour.getPoints(), DEFAULT_CELL_SIZE, ForkJoinPool.commonPool()))
+            tour.add(city);
+    }
+
+    // the ids of every city of the store in the order of the stitched tour,
+    // from cells of at most cellSize cities, solved on the given pool
+    public static int[] order(PointStore points, int cellSize, ForkJoinPool pool)
+    {
+        int n = points.size();
+        int[] cities = new int[n];
+        for(int city = 0; city < n; city++)
+            cities[city] = city;
+        if(n == 0)
+            return cities;
+        return pool.invoke(new KarpPartition(points, cities, 0, n, Math.max(cellSize, 3)));
+    }
+
+    // the tour of the cities in this task's range, splitting it in halves
+    // until a cell is small enough
+    protected int[] compute()
+    {
+        if(last - first <= cellSize)
+            return solve();
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(int i = first; i < last; i++){
+            minX = Math.min(minX, points.getX(cities[i]));
+            minY = Math.min(minY, points.getY(cities[i]));
+            maxX = Math.max(maxX, points.getX(cities[i]));
+            maxY = Math.max(maxY, points.getY(cities[i]));
+        }
+        boolean vertical = maxX - minX >= maxY - minY;
+        int middle = (first + last) >>> 1;
+        select(middle, vertical);
+        double cut = coordinate(cities[middle], vertical);
+
+        KarpPartition lower = new KarpPartition(points, cities, first, middle, cellSize);
+        KarpPartition upper = new KarpPartition(points, cities, middle, last, cellSize);
+        lower.fork();
+        int[] b = upper.compute();
+        int[] a = lower.join();
+        return stitch(a, b, vertical, cut);
+    }
+
+    // a tour of one cell, built on a PointStore of its own
+    private int[] solve()
+    {
+        int n = last - first;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for(int i = 0; i < n; i++){
+            xs[i] = points.getX(cities[first + i]);
+            ys[i] = points.getY(cities[first + i]);
+        }
+        Tour tour = new Tour(new PointStore(xs, ys));
+        for(int i = 0; i < n; i++)
+            tour.insertSmallest(i);
+        if(n > 3){
+            TwoOpt.optimize(tour);
+            OrOpt.optimize(tour);
+        }
+        int[] order = tour.toArray();
+        for(int i = 0; i < n; i++)
+            order[i] = cities[first + order[i]];
+        return order;
+    }
+
+    // rearrange the range so the city at k is where it would be if the range
+    // were sorted by the coordinate across the cut, with none after it lower
+    // and none before it higher
+    private void select(int k, boolean vertical)
+    {
+        int lo = first;
+        int hi = last - 1;
+        while(lo < hi){
+            //median of three as the pivot
+            int mid = (lo + hi) >>> 1;
+            if(coordinate(cities[mid], vertical) < coordinate(cities[lo], vertical))
+                swap(lo, mid);
+            if(coordinate(cities[hi], vertical) < coordinate(cities[lo], vertical))
+                swap(lo, hi);
+            if(coordinate(cities[hi], vertical) < coordinate(cities[mid], vertical))
+                swap(mid, hi);
+            double pivot = coordinate(cities[mid], vertical);
+            int i = lo;
+            int j = hi;
+            while(i <= j){
+                while(coordinate(cities[i], vertical) < pivot)
+                    i++;
+                while(coordinate(cities[j], vertical) > pivot)
+                    j--;
+                if(i <= j)
+                    swap(i++, j--);
+            }
+            if(k <= j)
+                hi = j;
+            else if(k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    // join two tours into one cycle, given the cut between their cities
+    private int[] stitch(int[] a, int[] b, boolean vertical, double cut)
+    {
+        int[] nearA = boundary(a, vertical, cut);
+        int[] nearB = boundary(b, vertical, cut);
+        DistanceOracle distances = points.distances();
+        KdTree across = new KdTree(nearB.length);
+        for(int i = 0; i < nearB.length; i++)
+            across.insert(i, points.getX(b[nearB[i]]), points.getY(b[nearB[i]]));
+
+        //best exchange: drop the edge of a from position ua to the one after
+        //it and the edge of b from position pb to the one after it, then go
+        //from a's first end to b's end at pb if atP is set (the far end otherwise)
+        double best = Double.POSITIVE_INFINITY;
+        int bestA = 0;
+        int bestB = 0;
+        boolean bestAtP = true;
+        int[] found = new int[CANDIDATES];
+        for(int pa : nearA){
+            int city = a[pa];
+            int count = across.nearest(points.getX(city), points.getY(city), CANDIDATES, found);
+            for(int ea = 0; ea < 2; ea++){
+                int ua = ea == 0 ? pa : (pa - 1 + a.length) % a.length;
+                int u = a[ua];
+                int v = a[(ua + 1) % a.length];
+                double removedA = distances.distance(u, v);
+                for(int f = 0; f < count; f++){
+                    int pbCity = nearB[found[f]];
+                    for(int eb = 0; eb < 2; eb++){
+                        int pb = eb == 0 ? pbCity : (pbCity - 1 + b.length) % b.length;
+                        int p = b[pb];
+                        int q = b[(pb + 1) % b.length];
+                        double removed = removedA + distances.distance(p, q);
+                        double atP = distances.distance(u, p) + distances.distance(q, v) - removed;
+                        double atQ = distances.distance(u, q) + distances.distance(p, v) - removed;
+                        if(atP < best){
+                            best = atP;
+                            bestA = ua;
+                            bestB = pb;
+                            bestAtP = true;
+                        }
+                        if(atQ < best){
+                            best = atQ;
+                            bestA = ua;
+                            bestB = pb;
+                            bestAtP = false;
+                        }
+                    }
+                }
+            }
+        }
+
+        //a from the city after bestA round to bestA, then all of b back to a
+        int[] tour = new int[a.length + b.length];
+        int count = 0;
+        for(int i = 1; i <= a.length; i++)
+            tour[count++] = a[(bestA + i) % a.length];
+        if(bestAtP){
+            //from p backwards round to q
+            for(int i = 0; i < b.length; i++)
+                tour[count++] = b[(bestB - i + b.length) % b.length];
+        } else{
+            //from q forwards round to p
+            for(int i = 1; i <= b.length; i++)
+                tour[count++] = b[(bestB + i) % b.length];
+        }
+        return tour;
+    }
+
+    // positions in the tour of its BOUNDARY cities nearest the cut, in no particular order
+    private int[] boundary(int[] tour, boolean vertical, double cut)
+    {
+        int m = Math.min(BOUNDARY, tour.length);
+        //max-heap of the nearest positions so far, farthest on top
+        int[] heap = new int[m];
+        double[] gaps = new double[m];
+        int size = 0;
+        for(int i = 0; i < tour.length; i++){
+            double gap = Math.abs(coordinate(tour[i], vertical) - cut);
+            if(size == m){
+                if(gap >= gaps[0])
+                    continue;
+                //replace the top and sift it down
+                int c = 0;
+                while(2 * c + 1 < m){
+                    int child = 2 * c + 1;
+                    if(child + 1 < m && gaps[child + 1] > gaps[child])
+                        child++;
+                    if(gaps[child] <= gap)
+                        break;
+                    heap[c] = heap[child];
+                    gaps[c] = gaps[child];
+                    c = child;
+                }
+                heap[c] = i;
+                gaps[c] = gap;
+            } else{
+                int c = size++;
+                while(c > 0 && gaps[(c - 1) / 2] < gap){
+                    heap[c] = heap[(c - 1) / 2];
+                    gaps[c] = gaps[(c - 1) / 2];
+                    c = (c - 1) / 2;
+                }
+                heap[c] = i;
+                gaps[c] = gap;
+            }
+        }
+        return heap;
+    }
+
+    // the city's coordinate across the cut
+    private double coordinate(int city, boolean vertical)
+    {
+        return vertical ? points.getX(city) : points.getY(city);
+    }
+
+    private void swap(int i, int j)
+    {
+        int t = cities[i];
+        cities[i] = cities[j];
+        cities[j] = t;
+    }
+}
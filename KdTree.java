@@ -0,0 +1,444 @@
+import java.util.*;
+
+/**
+ * A dynamic 2-d tree over a set of points, each identified by an int id.
+ * Points can be added one at a time and the tree answers nearest neighbor
+ * queries in expected O(log n), and k-nearest ones in about O(k log n).
+ * Subtrees that get too lopsided are rebuilt around their median (scapegoat
+ * style), so even sorted input keeps the depth logarithmic.
+ *
+ * Removing a point only marks its node dead. Every node counts the live
+ * points below it, so queries skip subtrees that hold nothing but dead ones,
+ * and once more than half the nodes are dead the tree is built again from
+ * the live ones, so removing and inserting points keeps it the same size.
+ *
+ * Distances are computed exactly like Point2D.distance, so a query can be
+ * compared with == against a distance the caller computes from a Point.
+ *
+ * @author
+ * @version
+ */
+
+public class KdTree
+{
+    // a subtree is rebuilt once one of its children holds more than this share of it
+    private static final double ALPHA = 0.75;
+    // the whole tree is rebuilt once more than this share of its nodes are dead
+    private static final double MAX_DEAD = 0.5;
+    // starting length of the arrays, they double whenever they fill up
+    private static final int INITIAL_CAPACITY = 16;
+    // marks a missing child
+    private static final int NONE = -1;
+
+    // instance variables
+    //Number of nodes in the tree, and how many of them were removed
+    private int count;
+    private int removed;
+    //Slot of the root node
+    private int root;
+    //Coordinates, caller's id, children, parent and subtree size of every
+    //node, by slot
+    private double[] xs;
+    private double[] ys;
+    private int[] ids;
+    private int[] left;
+    private int[] right;
+    private int[] parents;
+    private int[] sizes;
+    //Whether each node was removed, and the number of live nodes in its subtree
+    private boolean[] dead;
+    private int[] alive;
+    //Slot of the node of every id, -1 for ids not in the tree
+    private int[] slots;
+    //Scratch space for the insertion path and for rebuilding subtrees
+    private int[] path;
+    private int[] buffer;
+
+    //Result of the last nearest query
+    private int bestId;
+    private double bestDistance;
+    private int ties;
+    //Max-heap of the best points found so far by a k-nearest query
+    private int[] heapIds;
+    private double[] heapDistances;
+    private int heapSize;
+    private int heapLimit;
+
+    // constructor
+    public KdTree()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    // constructor that sizes the tree for the given number of points up front
+    public KdTree(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        xs = new double[capacity];
+        ys = new double[capacity];
+        ids = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parents = new int[capacity];
+        sizes = new int[capacity];
+        dead = new boolean[capacity];
+        alive = new int[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, NONE);
+        path = new int[INITIAL_CAPACITY];
+        buffer = new int[capacity];
+        root = NONE;
+        count = 0;
+        removed = 0;
+    }
+
+    //return the number of points in the tree
+    public int size()
+    {
+        return count - removed;
+    }
+
+    // add the point (x,y) to the tree under the given id, which must not be
+    // negative or in the tree already
+    public void insert(int id, double x, double y)
+    {
+        int n = store(id, x, y);
+        if(root == NONE){
+            root = n;
+            parents[n] = NONE;
+            return;
+        }
+
+        //walk down to the empty child the point belongs in, remembering the way
+        int depth = 0;
+        int c = root;
+        while(true){
+            if(depth == path.length)
+                path = Arrays.copyOf(path, 2 * path.length);
+            path[depth] = c;
+            sizes[c]++;
+            alive[c]++;
+            boolean goLeft = (depth % 2 == 0) ? x < xs[c] : y < ys[c];
+            int child = goLeft ? left[c] : right[c];
+            depth++;
+            if(child == NONE){
+                if(goLeft)
+                    left[c] = n;
+                else
+                    right[c] = n;
+                parents[n] = c;
+                break;
+            }
+            c = child;
+        }
+
+        //too deep: rebuild the lowest ancestor that is out of balance
+        if(depth > Math.log(count) / Math.log(1 / ALPHA) + 1){
+            for(int d = depth - 1; d >= 0; d--){
+                int a = path[d];
+                int child = (d + 1 < depth) ? path[d + 1] : n;
+                if(sizes[child] > ALPHA * sizes[a]){
+                    rebuild(d, d == 0 ? NONE : path[d - 1], a);
+                    break;
+                }
+            }
+        }
+    }
+
+    // take the point with the given id out of the tree, and tell whether it was in it
+    public boolean remove(int id)
+    {
+        if(id < 0 || id >= slots.length || slots[id] == NONE)
+            return false;
+        int c = slots[id];
+        slots[id] = NONE;
+        dead[c] = true;
+        removed++;
+        for(; c != NONE; c = parents[c])
+            alive[c]--;
+        if(removed > MAX_DEAD * count)
+            compact();
+        return true;
+    }
+
+    // return the id of the point nearest to (x,y), or -1 if the tree is empty
+    // the distance and the number of points at that same distance are kept
+    // for nearestDistance() and ties()
+    public int nearest(double x, double y)
+    {
+        bestId = NONE;
+        bestDistance = Double.POSITIVE_INFINITY;
+        ties = 0;
+        if(root != NONE)
+            nearest(root, 0, x, y);
+        return bestId;
+    }
+
+    // distance found by the last nearest query
+    public double nearestDistance()
+    {
+        return bestDistance;
+    }
+
+    // number of points that were exactly nearestDistance() away in the last query
+    public int ties()
+    {
+        return ties;
+    }
+
+    // put the ids of the k points nearest to (x,y) into result, nearest first,
+    // and return how many there were (fewer than k when the tree is smaller)
+    public int nearest(double x, double y, int k, int[] result)
+    {
+        if(heapIds == null || heapIds.length < k){
+            heapIds = new int[k];
+            heapDistances = new double[k];
+        }
+        heapSize = 0;
+        heapLimit = k;
+        if(root != NONE && k > 0)
+            collect(root, 0, x, y);
+
+        //taking the farthest off the top leaves the rest in order
+        int found = heapSize;
+        while(heapSize > 0){
+            result[heapSize - 1] = heapIds[0];
+            pop();
+        }
+        return found;
+    }
+
+    // search the subtree at slot c, whose splitting axis is given by depth
+    private void nearest(int c, int depth, double x, double y)
+    {
+        if(alive[c] == 0)
+            return;
+        if(!dead[c]){
+            double d = PointStore.distance(xs[c], ys[c], x, y);
+            if(d < bestDistance){
+                bestDistance = d;
+                bestId = ids[c];
+                ties = 1;
+            } else if(d == bestDistance){
+                ties++;
+            }
+        }
+
+        double diff = (depth % 2 == 0) ? x - xs[c] : y - ys[c];
+        int near = diff < 0 ? left[c] : right[c];
+        int far = diff < 0 ? right[c] : left[c];
+        if(near != NONE)
+            nearest(near, depth + 1, x, y);
+        //points on the far side are at least |diff| away, keep looking for ties
+        if(far != NONE && Math.abs(diff) <= bestDistance)
+            nearest(far, depth + 1, x, y);
+    }
+
+    // search the subtree at slot c for the k nearest points
+    private void collect(int c, int depth, double x, double y)
+    {
+        if(alive[c] == 0)
+            return;
+        if(!dead[c]){
+            double d = PointStore.distance(xs[c], ys[c], x, y);
+            if(heapSize < heapLimit){
+                push(ids[c], d);
+            } else if(d < heapDistances[0]){
+                pop();
+                push(ids[c], d);
+            }
+        }
+
+        double diff = (depth % 2 == 0) ? x - xs[c] : y - ys[c];
+        int near = diff < 0 ? left[c] : right[c];
+        int far = diff < 0 ? right[c] : left[c];
+        if(near != NONE)
+            collect(near, depth + 1, x, y);
+        if(far != NONE && (heapSize < heapLimit || Math.abs(diff) < heapDistances[0]))
+            collect(far, depth + 1, x, y);
+    }
+
+    // add a point to the heap of the k nearest
+    private void push(int id, double d)
+    {
+        int i = heapSize++;
+        while(i > 0){
+            int parent = (i - 1) / 2;
+            if(heapDistances[parent] >= d)
+                break;
+            heapIds[i] = heapIds[parent];
+            heapDistances[i] = heapDistances[parent];
+            i = parent;
+        }
+        heapIds[i] = id;
+        heapDistances[i] = d;
+    }
+
+    // drop the farthest point from the heap of the k nearest
+    private void pop()
+    {
+        heapSize--;
+        int id = heapIds[heapSize];
+        double d = heapDistances[heapSize];
+        int i = 0;
+        while(2 * i + 1 < heapSize){
+            int child = 2 * i + 1;
+            if(child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child])
+                child++;
+            if(heapDistances[child] <= d)
+                break;
+            heapIds[i] = heapIds[child];
+            heapDistances[i] = heapDistances[child];
+            i = child;
+        }
+        if(heapSize > 0){
+            heapIds[i] = id;
+            heapDistances[i] = d;
+        }
+    }
+
+    // replace the subtree at slot c (child of parent, at the given depth) by a balanced one
+    private void rebuild(int depth, int parent, int c)
+    {
+        int n = 0;
+        int[] stack = path;
+        //the insertion path is no longer needed, reuse it as a stack
+        int top = 0;
+        stack[top++] = c;
+        while(top > 0){
+            int s = stack[--top];
+            buffer[n++] = s;
+            if(left[s] != NONE){
+                if(top == stack.length)
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                stack[top++] = left[s];
+            }
+            if(right[s] != NONE){
+                if(top == stack.length)
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                stack[top++] = right[s];
+            }
+        }
+        path = stack;
+
+        int subtree = build(0, n, depth);
+        parents[subtree] = parent;
+        if(parent == NONE)
+            root = subtree;
+        else if(left[parent] == c)
+            left[parent] = subtree;
+        else
+            right[parent] = subtree;
+    }
+
+    // move the live nodes to the front of the arrays and build a balanced
+    // tree over them alone
+    private void compact()
+    {
+        int n = 0;
+        for(int c = 0; c < count; c++){
+            if(dead[c])
+                continue;
+            xs[n] = xs[c];
+            ys[n] = ys[c];
+            ids[n] = ids[c];
+            dead[n] = false;
+            slots[ids[n]] = n;
+            buffer[n] = n;
+            n++;
+        }
+        count = n;
+        removed = 0;
+        root = build(0, n, 0);
+        if(root != NONE)
+            parents[root] = NONE;
+    }
+
+    // build a balanced subtree from buffer[lo, hi) and return its root slot
+    private int build(int lo, int hi, int depth)
+    {
+        if(lo >= hi)
+            return NONE;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi, mid, depth % 2 == 0);
+        int c = buffer[mid];
+        left[c] = build(lo, mid, depth + 1);
+        right[c] = build(mid + 1, hi, depth + 1);
+        sizes[c] = hi - lo;
+        alive[c] = dead[c] ? 0 : 1;
+        if(left[c] != NONE){
+            parents[left[c]] = c;
+            alive[c] += alive[left[c]];
+        }
+        if(right[c] != NONE){
+            parents[right[c]] = c;
+            alive[c] += alive[right[c]];
+        }
+        return c;
+    }
+
+    // partially sort buffer[lo, hi) so buffer[k] holds the median on the axis,
+    // nothing before it is larger and nothing after it is smaller
+    private void select(int lo, int hi, int k, boolean onX)
+    {
+        double[] key = onX ? xs : ys;
+        hi--;
+        while(lo < hi){
+            double pivot = key[buffer[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while(i <= j){
+                while(key[buffer[i]] < pivot)
+                    i++;
+                while(key[buffer[j]] > pivot)
+                    j--;
+                if(i <= j){
+                    int t = buffer[i];
+                    buffer[i] = buffer[j];
+                    buffer[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if(k <= j)
+                hi = j;
+            else if(k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    // claim a slot for the point, doubling the arrays when they are full
+    private int store(int id, double x, double y)
+    {
+        if(count == xs.length){
+            int capacity = 2 * xs.length;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            dead = Arrays.copyOf(dead, capacity);
+            alive = Arrays.copyOf(alive, capacity);
+            buffer = new int[capacity];
+        }
+        if(id >= slots.length){
+            int length = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(id + 1, 2 * length));
+            Arrays.fill(slots, length, slots.length, NONE);
+        }
+        slots[id] = count;
+        xs[count] = x;
+        ys[count] = y;
+        ids[count] = id;
+        left[count] = NONE;
+        right[count] = NONE;
+        sizes[count] = 1;
+        dead[count] = false;
+        alive[count] = 1;
+        return count++;
+    }
+}
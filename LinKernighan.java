@@ -0,0 +1,322 @@
+import java.util.*;
+
+/**
+ * Improves a finished tour with Lin-Kernighan style variable depth search.
+ * A move starts by breaking an edge (t1,t2) and then keeps adding an edge
+ * from the loose end to one of its nearest neighbors and breaking the edge
+ * that closes the tour up again (a 2-opt step), for as long as the edges
+ * added stay shorter in total than the edges broken. Of all the tours passed
+ * on the way, the shortest is kept. Every step looks at the 5 best
+ * candidates at the first level, 3 at the second and the best one below
+ * that, and an edge added during a move is never broken again by it.
+ *
+ * When the tour is as short as these moves can make it and the time budget
+ * is not used up, the search goes on as iterated Lin-Kernighan: a random
+ * double bridge on a few nearby segments kicks the tour out of its local
+ * optimum, the cities around the kick are searched again, and the result is
+ * kept only if the tour got shorter. Every change is journaled as a 2-opt
+ * exchange, so a kick that did not pay off is rolled back exactly.
+ *
+ * @author
+ * @version
+ */
+
+public class LinKernighan
+{
+    // number of nearest neighbors a loose end may be joined to
+    private static final int DEFAULT_NEIGHBORS = 10;
+    // most 2-opt steps in a single move
+    private static final int MAX_DEPTH = 50;
+    // candidates tried at each of the first levels of a move, then 1 below that
+    private static final int[] BREADTH = {5, 3};
+    // longest segment moved by a kick
+    private static final int KICK_SEGMENT = 50;
+    // seed of the kicks when none is given
+    private static final long DEFAULT_SEED = 1;
+    // a move has to gain more than this, so rounding cannot make the search go in circles
+    private static final double EPSILON = 1e-9;
+
+    // instance variables
+    //Distances between the cities and the candidates for every one of them
+    private DistanceOracle distances;
+    private CandidateLists neighbors;
+    //The cities of the tour, the tour being improved and its length
+    private int[] cities;
+    private OrientedTour order;
+    private double length;
+    //Cities whose don't-look bit is off, in the order they will be tried
+    private CityQueue queue;
+    //Every exchange (a,b,c,d) made since the last kick, 4 ints each, kept
+    //only while kicking so the kick can be rolled back
+    private int[] journal;
+    private int journaled;
+    private boolean kicking;
+    //System.nanoTime() at which the search stops
+    private long deadline;
+    //Edges added by the move being built, 2 ints each
+    private int[] added;
+    private int addedCount;
+    //Best gain found by the move being built, and the journal length it was found at
+    private double bestGain;
+    private int bestMark;
+    //Scratch space for ranking the candidates at each level
+    private int[][] candidates;
+    private double[][] scores;
+
+    private LinKernighan(PointStore points, CandidateLists neighbors, int[] cities, double length, long deadline)
+    {
+        distances = points.distances();
+        this.neighbors = neighbors;
+        this.cities = cities;
+        order = OrientedTour.of(points, cities);
+        this.length = length;
+        this.deadline = deadline;
+        queue = new CityQueue(order.size(), points.size());
+        journal = new int[64];
+        journaled = 0;
+        kicking = false;
+        added = new int[2 * MAX_DEPTH];
+        addedCount = 0;
+        candidates = new int[BREADTH.length][];
+        scores = new double[BREADTH.length][];
+        for(int i = 0; i < BREADTH.length; i++){
+            candidates[i] = new int[2 * BREADTH[i]];
+            scores[i] = new double[BREADTH[i]];
+        }
+    }
+
+    // improve the tour with Lin-Kernighan moves until there are none left,
+    // joining cities to their 10 nearest neighbors, then with kicks, stopping
+    // wherever the search is once the given number of seconds has gone by,
+    // and return how many improvements were made
+    public static int optimize(TourInterface tour, double seconds)
+    {
+        return optimize(tour, tour.getPoints().candidates(DEFAULT_NEIGHBORS), seconds, DEFAULT_SEED);
+    }
+
+    // the same with the given candidate lists, which must cover the tour's
+    // store, and the given seed for the kicks
+    public static int optimize(TourInterface tour, CandidateLists neighbors, double seconds, long seed)
+    {
+        if(tour.size() < 8)
+            return 0;
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        int[] cities = tour.toArray();
+        LinKernighan search = new LinKernighan(tour.getPoints(), neighbors, cities, tour.distance(), deadline);
+        for(int city : cities)
+            search.queue.push(city);
+        int improvements = search.run();
+
+        search.kicking = true;
+        Random random = new Random(seed);
+        while(System.nanoTime() < deadline){
+            double before = search.length;
+            search.kick(random);
+            search.run();
+            //a kick cut short by the deadline is rolled back like one that did not pay off
+            if(search.queue.isEmpty() && search.length < before - EPSILON)
+                improvements++;
+            else
+                search.rollback(0, before);
+            search.journaled = 0;
+        }
+        if(improvements > 0)
+            tour.setOrder(search.order.toArray());
+        return improvements;
+    }
+
+    // try the cities in the queue until it runs empty or time is up, and
+    // return how many moves were made
+    private int run()
+    {
+        int moves = 0;
+        while(!queue.isEmpty() && System.nanoTime() < deadline){
+            int t1 = queue.poll();
+            if(t1 < neighbors.size() && (improve(t1, order.next(t1)) || improve(t1, order.prev(t1))))
+                moves++;
+        }
+        return moves;
+    }
+
+    // build a move that starts by breaking the edge (t1,t2), keep the best
+    // tour it passes through and tell whether that was shorter
+    private boolean improve(int t1, int t2)
+    {
+        int mark = journaled;
+        bestGain = EPSILON;
+        bestMark = mark;
+        addedCount = 0;
+        deepen(t1, t2, distances.distance(t1, t2), 0);
+        rollback(bestMark, length);
+        if(bestMark == mark)
+            return false;
+        length -= bestGain;
+        //a move puts the cities it touches, t1 among them, back in the queue
+        for(int i = mark; i < bestMark; i++)
+            queue.push(journal[i]);
+        if(!kicking)
+            journaled = mark;
+        return true;
+    }
+
+    // one level of a move: t2 is the loose end next to t1, and gain is the
+    // length of the edges broken so far minus the edges added, not counting
+    // the edge (t1,t2) that closes the tour
+    private void deepen(int t1, int t2, double gain, int depth)
+    {
+        int breadth = depth < BREADTH.length ? BREADTH[depth] : 1;
+        int[] found = depth < BREADTH.length ? candidates[depth] : null;
+        double[] rank = depth < BREADTH.length ? scores[depth] : null;
+        int count = 0;
+        int bestT3 = -1;
+        int bestT4 = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+
+        boolean forward = (t1 == order.next(t2));
+        int k = neighbors.neighbors();
+        for(int i = 0; i < k; i++){
+            int t3 = neighbors.get(t2, i);
+            double g1 = gain - distances.distance(t2, t3);
+            //the lists are sorted, so no farther neighbor can keep the gain positive
+            if(g1 <= EPSILON)
+                break;
+            if(!order.contains(t3) || t3 == t1 || t3 == order.next(t2) || t3 == order.prev(t2))
+                continue;
+            //t4 is on the side of t3 that t1 is on of t2, so the exchange closes the tour
+            int t4 = forward ? order.next(t3) : order.prev(t3);
+            if(wasAdded(t3, t4))
+                continue;
+            double score = g1 + distances.distance(t3, t4);
+            if(found == null){
+                if(score > bestScore){
+                    bestScore = score;
+                    bestT3 = t3;
+                    bestT4 = t4;
+                }
+                continue;
+            }
+            //keep the best breadth candidates in descending order of score
+            int j = Math.min(count, breadth - 1);
+            if(count == breadth && score <= rank[j])
+                continue;
+            while(j > 0 && rank[j - 1] < score){
+                rank[j] = rank[j - 1];
+                found[2 * j] = found[2 * j - 2];
+                found[2 * j + 1] = found[2 * j - 1];
+                j--;
+            }
+            rank[j] = score;
+            found[2 * j] = t3;
+            found[2 * j + 1] = t4;
+            if(count < breadth)
+                count++;
+        }
+        if(found == null){
+            if(bestT3 != -1)
+                step(t1, t2, bestT3, bestT4, bestScore, depth);
+            return;
+        }
+        int mark = journaled;
+        for(int i = 0; i < count; i++){
+            step(t1, t2, found[2 * i], found[2 * i + 1], rank[i], depth);
+            //the best tour lies down this branch, so the alternatives are not needed
+            if(bestMark > mark)
+                return;
+            while(journaled > mark)
+                undoLast();
+        }
+    }
+
+    // add the edge (t2,t3), break (t3,t4), record the tour if it is the best
+    // so far and go one level deeper
+    private void step(int t1, int t2, int t3, int t4, double gain, int depth)
+    {
+        exchange(t2, t1, t3, t4);
+        added[2 * addedCount] = t2;
+        added[2 * addedCount + 1] = t3;
+        addedCount++;
+        double closed = gain - distances.distance(t4, t1);
+        if(closed > bestGain){
+            bestGain = closed;
+            bestMark = journaled;
+        }
+        if(depth + 1 < MAX_DEPTH)
+            deepen(t1, t4, gain, depth + 1);
+        addedCount--;
+    }
+
+    // was the edge (a,b) added by the move being built
+    private boolean wasAdded(int a, int b)
+    {
+        for(int i = 0; i < addedCount; i++){
+            int x = added[2 * i];
+            int y = added[2 * i + 1];
+            if((x == a && y == b) || (x == b && y == a))
+                return true;
+        }
+        return false;
+    }
+
+    // a double bridge on three short segments after a random city:
+    // a B C d becomes a C B d
+    private void kick(Random random)
+    {
+        int n = order.size();
+        int l1 = 1 + random.nextInt(Math.min(KICK_SEGMENT, (n - 2) / 3));
+        int l2 = 1 + random.nextInt(Math.min(KICK_SEGMENT, (n - 2) / 3));
+        int a = cities[random.nextInt(n)];
+        int b1 = order.next(a);
+        int b2 = b1;
+        for(int i = 1; i < l1; i++)
+            b2 = order.next(b2);
+        int c1 = order.next(b2);
+        int c2 = c1;
+        for(int i = 1; i < l2; i++)
+            c2 = order.next(c2);
+        int d = order.next(c2);
+
+        double before = distances.distance(a, b1) + distances.distance(b2, c1) + distances.distance(c2, d);
+        //a B C d -> a C' B' d -> a C B' d -> a C B d
+        exchange(a, b1, c2, d);
+        exchange(a, c2, c1, b2);
+        exchange(c2, b2, b1, d);
+        length += distances.distance(a, c1) + distances.distance(c2, b1) + distances.distance(b2, d) - before;
+        queue.push(a);
+        queue.push(b1);
+        queue.push(b2);
+        queue.push(c1);
+        queue.push(c2);
+        queue.push(d);
+    }
+
+    // make the exchange and journal it
+    private void exchange(int a, int b, int c, int d)
+    {
+        order.exchange(a, b, c, d);
+        if(journaled == journal.length)
+            journal = Arrays.copyOf(journal, 2 * journal.length);
+        journal[journaled++] = a;
+        journal[journaled++] = b;
+        journal[journaled++] = c;
+        journal[journaled++] = d;
+    }
+
+    // undo the last exchange in the journal: (a,c) and (b,d) go back to (a,b) and (c,d)
+    private void undoLast()
+    {
+        journaled -= 4;
+        int a = journal[journaled];
+        int b = journal[journaled + 1];
+        int c = journal[journaled + 2];
+        int d = journal[journaled + 3];
+        order.exchange(a, c, b, d);
+    }
+
+    // undo every exchange after the given journal length and set the length
+    private void rollback(int mark, double length)
+    {
+        while(journaled > mark)
+            undoLast();
+        this.length = length;
+    }
+}
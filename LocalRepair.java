@@ -0,0 +1,130 @@
+/**
+ * Improves a short stretch of a tour after it was edited: the cities of a
+ * path are put in a better order with 2-opt and Or-opt moves while its two
+ * end cities stay where they are, so the path still joins the rest of the
+ * tour the same way. The path is small, so every pair of edges is tried
+ * and the search is repeated until no move gains anything.
+ *
+ * A 2-opt move replaces the edges (a,b) and (c,d) of the path by (a,c) and
+ * (b,d), reversing the cities in between. An Or-opt move takes out 1 to
+ * MAX_SEGMENT cities in a row and puts them between two other cities of
+ * the path, either way round.
+ *
+ * @author
+ * @version
+ */
+
+public class LocalRepair
+{
+    // longest run of cities an Or-opt move takes out
+    private static final int MAX_SEGMENT = 3;
+    // a move has to gain more than this, so rounding cannot make the search go in circles
+    private static final double EPSILON = 1e-9;
+
+    // instance variables
+    //Distances between the cities
+    private DistanceOracle distances;
+    //The path being improved, whose first and last city stay in place
+    private int[] path;
+
+    private LocalRepair(DistanceOracle distances, int[] path)
+    {
+        this.distances = distances;
+        this.path = path;
+    }
+
+    // reorder the cities of the path between its first and last city while
+    // that makes it shorter, and return how much shorter it got
+    public static double improve(DistanceOracle distances, int[] path)
+    {
+        if(path.length < 4)
+            return 0;
+        LocalRepair repair = new LocalRepair(distances, path);
+        double gain = 0;
+        while(true){
+            double g = repair.twoOpt();
+            if(g == 0)
+                g = repair.orOpt();
+            if(g == 0)
+                return gain;
+            gain += g;
+        }
+    }
+
+    // make the first improving 2-opt move found and return its gain (0 if none)
+    private double twoOpt()
+    {
+        int m = path.length;
+        for(int i = 0; i + 3 < m; i++){
+            for(int j = i + 2; j + 1 < m; j++){
+                double gain = d(i, i + 1) + d(j, j + 1) - d(i, j) - d(i + 1, j + 1);
+                if(gain > EPSILON){
+                    reverse(i + 1, j);
+                    return gain;
+                }
+            }
+        }
+        return 0;
+    }
+
+    // make the first improving Or-opt move found and return its gain (0 if none)
+    private double orOpt()
+    {
+        int m = path.length;
+        for(int length = 1; length <= MAX_SEGMENT; length++){
+            //the segment from s to e, with cities of the path on both sides
+            for(int s = 1; s + length < m; s++){
+                int e = s + length - 1;
+                double removed = d(s - 1, s) + d(e, e + 1) - d(s - 1, e + 1);
+                //between k and k + 1, anywhere outside the segment
+                for(int k = 0; k + 1 < m; k++){
+                    if(k >= s - 1 && k <= e)
+                        continue;
+                    double forward = d(k, s) + d(e, k + 1) - d(k, k + 1);
+                    double backward = d(k, e) + d(s, k + 1) - d(k, k + 1);
+                    double added = Math.min(forward, backward);
+                    if(removed - added > EPSILON){
+                        move(s, e, k, backward < forward);
+                        return removed - added;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    // distance between the cities at places i and j of the path
+    private double d(int i, int j)
+    {
+        return distances.distance(path[i], path[j]);
+    }
+
+    // turn around the cities from place i to place j
+    private void reverse(int i, int j)
+    {
+        for(; i < j; i++, j--){
+            int t = path[i];
+            path[i] = path[j];
+            path[j] = t;
+        }
+    }
+
+    // put the cities from place s to e between the ones at k and k + 1,
+    // turned around if reversed is set
+    private void move(int s, int e, int k, boolean reversed)
+    {
+        int length = e - s + 1;
+        int[] moved = new int[length];
+        for(int i = 0; i < length; i++)
+            moved[i] = path[reversed ? e - i : s + i];
+        if(k < s){
+            //shift the cities after k up to s - 1 over the segment
+            System.arraycopy(path, k + 1, path, k + 1 + length, s - k - 1);
+            System.arraycopy(moved, 0, path, k + 1, length);
+        } else{
+            //shift the cities after e up to k back into the segment's place
+            System.arraycopy(path, e + 1, path, s, k - e);
+            System.arraycopy(moved, 0, path, k - length + 1, length);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds many Tours over the same PointStore at once, each one inserting the
+ * cities in a different random order, and keeps the shortest. The heuristics
+ * depend heavily on the order the cities come in, so a handful of starts
+ * usually beats the file order by a few percent.
+ *
+ * The starts run on a ForkJoinPool. They only read the PointStore, and every
+ * Tour has its own indexes, so nothing is shared between the workers that is
+ * ever written. Start i always uses the same permutation for the same seed,
+ * and of two equally short tours the one from the lower start wins, so the
+ * result does not depend on the number of threads.
+ *
+ * @author
+ * @version
+ */
+
+public class MultiStart extends RecursiveTask<Tour>
+{
+    // ForkJoinTask is Serializable, though this task is never serialized
+    private static final long serialVersionUID = 1L;
+
+    // instance variables
+    //Cities to build the tours over and the seed of the permutations
+    private PointStore points;
+    private long seed;
+    //Whether the tours are built with insertSmallest instead of insertNearest
+    private boolean smallest;
+    //The starts this task builds, from first up to but not including last
+    private int first;
+    private int last;
+
+    private MultiStart(PointStore points, long seed, boolean smallest, int first, int last)
+    {
+        this.points = points;
+        this.seed = seed;
+        this.smallest = smallest;
+        this.first = first;
+        this.last = last;
+    }
+
+    // the shortest of the given number of insertNearest tours over every
+    // city of the store, each inserting the cities in a random order
+    public static Tour insertNearest(PointStore points, int starts, long seed)
+    {
+        return insertNearest(points, starts, seed, ForkJoinPool.commonPool());
+    }
+
+    // the same, running on the given pool
+    public static Tour insertNearest(PointStore points, int starts, long seed, ForkJoinPool pool)
+    {
+        return pool.invoke(new MultiStart(points, seed, false, 0, Math.max(starts, 1)));
+    }
+
+    // the shortest of the given number of insertSmallest tours over every
+    // city of the store, each inserting the cities in a random order
+    public static Tour insertSmallest(PointStore points, int starts, long seed)
+    {
+        return insertSmallest(points, starts, seed, ForkJoinPool.commonPool());
+    }
+
+    // the same, running on the given pool
+    public static Tour insertSmallest(PointStore points, int starts, long seed, ForkJoinPool pool)
+    {
+        return pool.invoke(new MultiStart(points, seed, true, 0, Math.max(starts, 1)));
+    }
+
+    // the order in which start number start inserts the cities
+    public static int[] permutation(int cities, long seed, int start)
+    {
+        Random random = new Random(seed + start * 0x9E3779B97F4A7C15L);
+        int[] order = new int[cities];
+        for(int i = 0; i < cities; i++)
+            order[i] = i;
+        for(int i = cities - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    // build the starts, splitting them in halves until one is left
+    protected Tour compute()
+    {
+        if(last - first == 1)
+            return build(first);
+        int middle = (first + last) >>> 1;
+        MultiStart lower = new MultiStart(points, seed, smallest, first, middle);
+        MultiStart upper = new MultiStart(points, seed, smallest, middle, last);
+        lower.fork();
+        Tour upperTour = upper.compute();
+        Tour lowerTour = lower.join();
+        //the lower half wins ties, whichever finished first
+        if(upperTour.distance() < lowerTour.distance())
+            return upperTour;
+        return lowerTour;
+    }
+
+    // build the tour of one start
+    private Tour build(int start)
+    {
+        Tour tour = new Tour(points);
+        for(int city : permutation(points.size(), seed, start)){
+            if(smallest)
+                tour.insertSmallest(city);
+            else
+                tour.insertNearest(city);
+        }
+        return tour;
+    }
+}
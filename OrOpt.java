@@ -0,0 +1,165 @@
+import java.util.*;
+
+/**
+ * Improves a finished tour with Or-opt moves: a segment of one to three
+ * consecutive cities is cut out, its two neighbors are joined, and it is put
+ * back between two other adjacent cities, either way round, whenever that
+ * makes the tour shorter. The search stops when no such move is left.
+ *
+ * A segment only goes next to one of the nearest neighbors of the city at
+ * its end, each move is priced in O(1) from the three edges it removes and
+ * the three it adds, and the same don't-look bits as TwoOpt keep the work on
+ * the parts of the tour the last moves changed.
+ *
+ * @author
+ * @version
+ */
+
+public class OrOpt
+{
+    // number of nearest neighbors a segment may be moved next to
+    private static final int DEFAULT_NEIGHBORS = 10;
+    // longest segment that is moved
+    private static final int MAX_SEGMENT = 3;
+    // a move has to gain more than this, so rounding cannot make the search go in circles
+    private static final double EPSILON = 1e-9;
+
+    // instance variables
+    //Distances between the cities and the candidates for every one of them
+    private DistanceOracle distances;
+    private CandidateLists neighbors;
+    //The tour being improved
+    private OrientedTour order;
+    //Cities whose don't-look bit is off, in the order they will be tried
+    private CityQueue queue;
+
+    private OrOpt(PointStore points, CandidateLists neighbors, OrientedTour order)
+    {
+        distances = points.distances();
+        this.neighbors = neighbors;
+        this.order = order;
+        queue = new CityQueue(order.size(), points.size());
+    }
+
+    // apply improving Or-opt moves to the tour until there are none left,
+    // moving segments next to the 10 nearest neighbors of their ends, and
+    // return how many moves were made
+    public static int optimize(TourInterface tour)
+    {
+        return optimize(tour, tour.getPoints().candidates(DEFAULT_NEIGHBORS));
+    }
+
+    // the same with the given candidate lists, which must cover the tour's store
+    public static int optimize(TourInterface tour, CandidateLists neighbors)
+    {
+        if(tour.size() < MAX_SEGMENT + 3)
+            return 0;
+        int[] cities = tour.toArray();
+        OrOpt search = new OrOpt(tour.getPoints(), neighbors, OrientedTour.of(tour.getPoints(), cities));
+        for(int city : cities)
+            search.queue.push(city);
+        int moves = search.run();
+        if(moves > 0)
+            tour.setOrder(search.order.toArray());
+        return moves;
+    }
+
+    // try the cities in the queue until it runs empty
+    private int run()
+    {
+        int moves = 0;
+        while(!queue.isEmpty()){
+            int a = queue.poll();
+            //a move puts the cities it touches, a among them, back in the queue
+            if(improve(a))
+                moves++;
+        }
+        return moves;
+    }
+
+    // look for an improving move of a segment that starts at city a and goes
+    // next to one of a's neighbors, make the first one found and tell whether
+    // there was one
+    private boolean improve(int a)
+    {
+        if(a >= neighbors.size())
+            return false;
+        int k = neighbors.neighbors();
+        for(int side = 0; side < 2; side++){
+            boolean forward = (side == 0);
+            //the segment runs from a to s in this direction, between p and n
+            int p = step(a, !forward);
+            int s = a;
+            for(int length = 1; length <= MAX_SEGMENT; length++){
+                if(length > 1)
+                    s = step(s, forward);
+                int n = step(s, forward);
+                if(n == p)
+                    break;
+                double removed = distances.distance(p, a) + distances.distance(s, n) - distances.distance(p, n);
+                for(int i = 0; i < k; i++){
+                    int c = neighbors.get(a, i);
+                    double ac = distances.distance(a, c);
+                    //the lists are sorted, so no farther neighbor can gain anything either
+                    if(ac >= removed)
+                        break;
+                    if(!order.contains(c) || inSegment(c, a, length, forward))
+                        continue;
+                    //a goes next to c, and s next to one of c's two neighbors
+                    for(int t = 0; t < 2; t++){
+                        boolean after = (t == 0);
+                        int e = step(c, after == forward);
+                        if(inSegment(e, a, length, forward))
+                            continue;
+                        double delta = ac + distances.distance(s, e) - distances.distance(c, e) - removed;
+                        if(delta < -EPSILON){
+                            move(a, s, p, n, c, e, after);
+                            queue.push(a);
+                            queue.push(s);
+                            queue.push(p);
+                            queue.push(n);
+                            queue.push(c);
+                            queue.push(e);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // the city after (forward) or before the given one
+    private int step(int city, boolean forward)
+    {
+        return forward ? order.next(city) : order.prev(city);
+    }
+
+    // is the city one of the length cities that run from a in the given direction
+    private boolean inSegment(int city, int a, int length, boolean forward)
+    {
+        for(int i = 0; i < length; i++){
+            if(city == a)
+                return true;
+            a = step(a, forward);
+        }
+        return false;
+    }
+
+    // move the segment a..s from between p and n to between c and e, with a
+    // next to c, as two or three 2-opt moves; after tells whether e comes
+    // after c when going from p through the segment
+    private void move(int a, int s, int p, int n, int c, int e, boolean after)
+    {
+        if(after){
+            //p a..s n..c e  ->  p c..n s..a e  ->  p n..c s..a e  ->  p n..c a..s e
+            order.exchange(p, a, c, e);
+            order.exchange(p, c, n, s);
+            order.exchange(c, s, a, e);
+        } else{
+            //p a..s n..e c  ->  p a..s e..n c  ->  p n..e s..a c
+            order.exchange(s, n, e, c);
+            order.exchange(p, a, n, c);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * A tour the local search optimizers can walk and change in place: the
+ * neighbors of a city either way round, whether cities come in a given
+ * order, and reversing a path. PositionTour keeps the order in one array,
+ * which is fastest up to some tens of thousands of cities; TwoLevelTour
+ * keeps it in segments, so a reversal costs O(sqrt n) however long the path
+ * is.
+ *
+ * @author
+ * @version
+ */
+
+public interface OrientedTour
+{
+    // tours with at least this many cities are optimized on a TwoLevelTour
+    // (2-opt, Or-opt and LinKernighan on subsets of mona-100k: the two are
+    // within noise of each other from 20000 to 50000 cities, mona-50k
+    // included, and the segments are at least twice as fast from 60000 on)
+    public static final int TWO_LEVEL_THRESHOLD = 60000;
+
+    //return the number of cities in the tour
+    public int size();
+
+    // is the city in the tour
+    public boolean contains(int city);
+
+    // the city after the given one
+    public int next(int city);
+
+    // the city before the given one
+    public int prev(int city);
+
+    // is b met on the way forward from a to c (a, b and c included)
+    public boolean between(int a, int b, int c);
+
+    // are a, b and c three different cities met in that order going forward
+    public boolean sequence(int a, int b, int c);
+
+    // reverse the path that runs forward from city from to city to
+    public void reverse(int from, int to);
+
+    // replace the edges (a,b) and (c,d) by (a,c) and (b,d), where b follows a
+    // and d follows c in the same direction, either forward or backward
+    public void exchange(int a, int b, int c, int d);
+
+    // the cities in visiting order
+    public int[] toArray();
+
+    // the order for the optimizers to work on that visits the given cities of
+    // the store: a PositionTour, or a TwoLevelTour from TWO_LEVEL_THRESHOLD
+    // cities on
+    public static OrientedTour of(PointStore points, int[] cities)
+    {
+        if(cities.length >= TWO_LEVEL_THRESHOLD)
+            return new TwoLevelTour(points, cities);
+        return new PositionTour(points, cities);
+    }
+}
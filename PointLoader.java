@@ -0,0 +1,153 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file in the "Data Files" format straight into a PointStore: the
+ * width and height of the drawing area, followed by one "x y" pair per city,
+ * all separated by whitespace.
+ *
+ * The file is memory-mapped and the numbers are parsed by hand from the raw
+ * ASCII bytes instead of going through Scanner's regular expressions. The
+ * values are the same doubles Scanner.nextDouble would return.
+ *
+ * @author
+ * @version
+ */
+
+public class PointLoader
+{
+    // powers of ten that are exact as doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // largest integer every smaller one of which is exact as a double
+    private static final long EXACT_LIMIT = 1L << 53;
+
+    // instance variables
+    //The mapped file and the position of the next byte to read
+    private MappedByteBuffer buffer;
+    private int position;
+    private int limit;
+
+    private PointLoader(MappedByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.position = 0;
+        this.limit = buffer.limit();
+    }
+
+    // read every city in the file into a new PointStore, with its width and
+    // height taken from the first two numbers
+    public static PointStore load(File file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            if(channel.size() > Integer.MAX_VALUE)
+                throw new IOException(file + " is too large to map");
+            PointLoader loader = new PointLoader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return loader.read(file);
+        }
+    }
+
+    private PointStore read(File file) throws IOException
+    {
+        if(!skipWhitespace())
+            throw new IOException(file + " has no width and height");
+        int width = (int) nextDouble(file);
+        if(!skipWhitespace())
+            throw new IOException(file + " has no height");
+        int height = (int) nextDouble(file);
+
+        //one city per line in every file we ship, so size the store by counting lines
+        int lines = 1;
+        for(int i = position; i < limit; i++){
+            if(buffer.get(i) == '\n')
+                lines++;
+        }
+        PointStore points = new PointStore(lines);
+        points.setSize(width, height);
+        while(skipWhitespace()){
+            double x = nextDouble(file);
+            if(!skipWhitespace())
+                throw new IOException(file + " ends in the middle of a point");
+            points.add(x, nextDouble(file));
+        }
+        return points;
+    }
+
+    // move past spaces and line breaks, and tell whether anything is left
+    private boolean skipWhitespace()
+    {
+        while(position < limit){
+            if(!isWhitespace(buffer.get(position)))
+                return true;
+            position++;
+        }
+        return false;
+    }
+
+    // parse the number that starts at the current position
+    private double nextDouble(File file) throws IOException
+    {
+        int start = position;
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if(b == '-' || b == '+'){
+            negative = (b == '-');
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean exact = true;
+        boolean fraction = false;
+        while(position < limit){
+            b = buffer.get(position);
+            if(b >= '0' && b <= '9'){
+                if(mantissa < EXACT_LIMIT / 10){
+                    mantissa = 10 * mantissa + (b - '0');
+                    if(fraction)
+                        decimals++;
+                } else{
+                    exact = false;
+                }
+                digits++;
+            } else if(b == '.' && !fraction){
+                fraction = true;
+            } else{
+                break;
+            }
+            position++;
+        }
+        if(digits == 0)
+            throw new IOException(file + " has something that is not a number at byte " + start);
+
+        //exponents and long or very precise numbers are rare, let the library round them
+        if(position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E'))
+            exact = false;
+        if(!exact || decimals >= POWERS_OF_TEN.length){
+            while(position < limit && !isWhitespace(buffer.get(position)))
+                position++;
+            byte[] text = new byte[position - start];
+            for(int i = 0; i < text.length; i++)
+                text[i] = buffer.get(start + i);
+            try{
+                return Double.parseDouble(new String(text, "US-ASCII"));
+            } catch(NumberFormatException e){
+                throw new IOException(file + " has something that is not a number at byte " + start);
+            }
+        }
+
+        //both are exact doubles, so the division is correctly rounded like parseDouble
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    private static boolean isWhitespace(byte b)
+    {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.*;
+
+/**
+ * Holds the coordinates of every city of an instance in two flat double
+ * arrays, so a city is just an int id instead of a Point object. Tours built
+ * on the same PointStore share its coordinates, and the solvers share its
+ * candidate lists.
+ *
+ * @author
+ * @version
+ */
+
+public class PointStore implements DistanceOracle
+{
+    // starting length of the arrays, they double whenever they fill up
+    private static final int INITIAL_CAPACITY = 16;
+    // memory a DistanceMatrix may take unless setDistanceBudget says
+    // otherwise: none, since a lookup is slower than a square root and its
+    // rounded floats would change which moves the solvers make
+    public static final long DEFAULT_DISTANCE_BUDGET = 0;
+
+    // instance variables
+    //Number of cities in the store
+    private int count;
+    //x and y coordinate of every city, indexed by its id
+    private double[] xs;
+    private double[] ys;
+    //Size of the area the cities are drawn in, as given by a data file
+    private int width;
+    private int height;
+    //Candidate lists of the cities, kept until a city is added or other lists are asked for
+    private CandidateLists candidates;
+    //Distances the solvers look up, kept until the store has doubled since,
+    //and the most memory a DistanceMatrix for them may take
+    private DistanceOracle distances;
+    private long distanceBudget = DEFAULT_DISTANCE_BUDGET;
+
+    // constructor
+    public PointStore()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    // constructor that sizes the store for the given number of cities up front
+    public PointStore(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        xs = new double[capacity];
+        ys = new double[capacity];
+        count = 0;
+    }
+
+    // constructor that stores the cities (xs[i], ys[i]) under the ids 0, 1, 2, ...
+    public PointStore(double[] xs, double[] ys)
+    {
+        this(xs.length);
+        addAll(xs, ys);
+    }
+
+    //return the number of cities in the store
+    public int size()
+    {
+        return count;
+    }
+
+    // store the city (x,y) and return its id
+    public int add(double x, double y)
+    {
+        if(count == xs.length)
+            resize(2 * xs.length);
+        xs[count] = x;
+        ys[count] = y;
+        return count++;
+    }
+
+    // store every city (xs[i], ys[i]) and return the id of the first one,
+    // the others follow it in order
+    public int addAll(double[] batchXs, double[] batchYs)
+    {
+        if(batchXs.length != batchYs.length)
+            throw new IllegalArgumentException("xs and ys must be the same length");
+        if(count + batchXs.length > xs.length)
+            resize(Math.max(count + batchXs.length, 2 * xs.length));
+        System.arraycopy(batchXs, 0, xs, count, batchXs.length);
+        System.arraycopy(batchYs, 0, ys, count, batchYs.length);
+        int first = count;
+        count += batchXs.length;
+        return first;
+    }
+
+    // set the size of the area the cities are drawn in
+    public void setSize(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    public double getX(int city)
+    {
+        return xs[city];
+    }
+
+    public double getY(int city)
+    {
+        return ys[city];
+    }
+
+    // the k nearest other cities of every city, built the first time they are
+    // asked for and shared by every solver on the store after that
+    public synchronized CandidateLists candidates(int k)
+    {
+        if(candidates == null || candidates.size() != count || candidates.neighbors() != Math.max(0, Math.min(k, count - 1)))
+            candidates = new CandidateLists(this, k);
+        return candidates;
+    }
+
+    // the distances between the cities for the solvers to look up:
+    // a DistanceMatrix when one fits the budget, otherwise the store itself,
+    // which works every distance out again
+    // (a matrix answers for cities added after it too, and is only built
+    // again once the store has twice the cities it has)
+    public synchronized DistanceOracle distances()
+    {
+        if(distances == null || 2L * distances.size() < count){
+            if(distanceBudget > 0 && count <= DistanceMatrix.MAX_CITIES && DistanceMatrix.bytes(count) <= distanceBudget)
+                distances = new DistanceMatrix(this);
+            else
+                distances = this;
+        }
+        return distances;
+    }
+
+    // set the most memory in bytes a DistanceMatrix of the store may take
+    // (0 never builds one)
+    public synchronized void setDistanceBudget(long bytes)
+    {
+        distanceBudget = bytes;
+        distances = null;
+    }
+
+    // a new Point with the coordinates of the city, for printing and the like
+    public Point getPoint(int city)
+    {
+        return new Point(xs[city], ys[city]);
+    }
+
+    // distance between two cities
+    public double distance(int a, int b)
+    {
+        return distance(xs[a], ys[a], xs[b], ys[b]);
+    }
+
+    // distance between a city and the location (x,y)
+    public double distance(int a, double x, double y)
+    {
+        return distance(xs[a], ys[a], x, y);
+    }
+
+    // distance between two locations, with the same arithmetic as
+    // Point2D.distance so the results compare exactly with a Point's
+    public static double distance(double x1, double y1, double x2, double y2)
+    {
+        x1 -= x2;
+        y1 -= y2;
+        return Math.sqrt(x1 * x1 + y1 * y1);
+    }
+
+    private void resize(int capacity)
+    {
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+    }
+}
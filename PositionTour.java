@@ -0,0 +1,354 @@
+import java.util.*;
+import java.awt.Graphics;
+
+/**
+ * A Tour kept as two int arrays: order holds the cities in visiting order
+ * and pos the position of every city of the store in order (-1 for the
+ * cities not in the tour). It is lighter than the linked Tour, with no node
+ * per city and no spatial index, and it is also what the local search
+ * optimizers work on.
+ *
+ * Finding the city after or before another, and telling whether a city lies
+ * between two others, are O(1) lookups in pos. Reversing a path moves the
+ * cities of the path or those of the rest of the tour, whichever is
+ * shorter, so a 2-opt move costs at most n/2 swaps.
+ *
+ * The heuristics scan every city or edge in visiting order, and an insert
+ * moves the cities after it one position on, so both are O(n). They break
+ * ties the way Tour does, so both classes build the same tour from the same
+ * input.
+ *
+ * @author
+ * @version
+ */
+
+public class PositionTour implements TourInterface, OrientedTour
+{
+    // starting length of the order, it doubles whenever it fills up
+    private static final int INITIAL_CAPACITY = 16;
+
+    // instance variables
+    //Coordinates of every city the tour can visit
+    private PointStore points;
+    //Number of cities in the tour
+    private int count;
+    //City at each position
+    private int[] order;
+    //Position of every city of the store, -1 for cities not in the tour
+    private int[] pos;
+
+    // constructor
+    public PositionTour()
+    {
+        this(new PointStore());
+    }
+
+    // constructor for a tour over cities of the given store
+    public PositionTour(PointStore points)
+    {
+        this.points = points;
+        count = 0;
+        order = new int[INITIAL_CAPACITY];
+        pos = new int[points.size()];
+        Arrays.fill(pos, -1);
+    }
+
+    // constructor for the tour that visits the given cities of the store, in
+    // that order
+    public PositionTour(PointStore points, int[] cities)
+    {
+        this.points = points;
+        count = cities.length;
+        order = Arrays.copyOf(cities, Math.max(cities.length, 1));
+        pos = new int[points.size()];
+        Arrays.fill(pos, -1);
+        for(int i = 0; i < count; i++)
+            pos[order[i]] = i;
+    }
+
+    //return the number of cities in the tour
+    public int size()
+    {
+        return count;
+    }
+
+    // the store holding the coordinates of the cities in the tour
+    public PointStore getPoints()
+    {
+        return points;
+    }
+
+    // is the city in the tour
+    public boolean contains(int city)
+    {
+        return city < pos.length && pos[city] != -1;
+    }
+
+    // the city after the given one
+    public int next(int city)
+    {
+        int i = pos[city] + 1;
+        return order[i == count ? 0 : i];
+    }
+
+    // the city before the given one
+    public int prev(int city)
+    {
+        int i = pos[city];
+        return order[i == 0 ? count - 1 : i - 1];
+    }
+
+    // is b met on the way forward from a to c (a, b and c included)
+    public boolean between(int a, int b, int c)
+    {
+        int i = pos[a];
+        int j = pos[b];
+        int k = pos[c];
+        if(i <= k)
+            return i <= j && j <= k;
+        return j >= i || j <= k;
+    }
+
+    // are a, b and c three different cities met in that order going forward
+    public boolean sequence(int a, int b, int c)
+    {
+        return a != b && b != c && a != c && between(a, b, c);
+    }
+
+    // reverse the path that runs forward from city from to city to
+    public void reverse(int from, int to)
+    {
+        int i = pos[from];
+        int j = pos[to];
+        int length = j - i;
+        if(length < 0)
+            length += count;
+        length++;
+        //turning the rest of the tour around gives the same cycle
+        if(2 * length > count){
+            int t = i;
+            i = j + 1;
+            j = t - 1;
+            if(i == count)
+                i = 0;
+            if(j < 0)
+                j = count - 1;
+            length = count - length;
+        }
+        for(int s = length / 2; s > 0; s--){
+            int a = order[i];
+            int b = order[j];
+            order[i] = b;
+            pos[b] = i;
+            order[j] = a;
+            pos[a] = j;
+            i++;
+            if(i == count)
+                i = 0;
+            j--;
+            if(j < 0)
+                j = count - 1;
+        }
+    }
+
+    // replace the edges (a,b) and (c,d) by (a,c) and (b,d), where b follows a
+    // and d follows c in the same direction, either forward or backward
+    public void exchange(int a, int b, int c, int d)
+    {
+        if(b == next(a))
+            reverse(b, c);
+        else
+            reverse(c, b);
+    }
+
+    // append Point p to the end of the tour
+    public void add(Point p)
+    {
+        add(points.add(p.getX(), p.getY()));
+    }
+
+    // append a city of the store to the end of the tour
+    public void add(int city)
+    {
+        insertAt(count, city);
+    }
+
+    // append every point in the batch to the end of the tour
+    public void addAll(double[] xs, double[] ys)
+    {
+        int first = reserve(xs, ys);
+        for(int i = 0; i < xs.length; i++)
+            add(first + i);
+    }
+
+    // add every point in the batch according to the NearestNeighbor heuristic
+    public void insertNearestAll(double[] xs, double[] ys)
+    {
+        int first = reserve(xs, ys);
+        for(int i = 0; i < xs.length; i++)
+            insertNearest(first + i);
+    }
+
+    // add every point in the batch according to the InsertSmallest heuristic
+    public void insertSmallestAll(double[] xs, double[] ys)
+    {
+        int first = reserve(xs, ys);
+        for(int i = 0; i < xs.length; i++)
+            insertSmallest(first + i);
+    }
+
+    // add Point p to the tour according to the NearestNeighbor heuristic
+    public void insertNearest(Point p)
+    {
+        insertNearest(points.add(p.getX(), p.getY()));
+    }
+
+    // add Point p to the tour according to the InsertSmallest heuristic
+    public void insertSmallest(Point p)
+    {
+        insertSmallest(points.add(p.getX(), p.getY()));
+    }
+
+    // add a city of the store to the tour according to the NearestNeighbor heuristic
+    public void insertNearest(int city)
+    {
+        if(count == 0){
+            add(city);
+            return;
+        }
+        double x = points.getX(city);
+        double y = points.getY(city);
+        //the first of several equally near cities in visiting order
+        int tracker = 0;
+        double min = points.distance(order[0], x, y);
+        for(int i = 1; i < count; i++){
+            double d = points.distance(order[i], x, y);
+            if(d < min){
+                tracker = i;
+                min = d;
+            }
+        }
+        insertAt(tracker + 1, city);
+    }
+
+    // add a city of the store to the tour according to the InsertSmallest heuristic
+    public void insertSmallest(int city)
+    {
+        if(count == 0){
+            add(city);
+            return;
+        }
+        double x = points.getX(city);
+        double y = points.getY(city);
+        //the closing edge first, then the rest in visiting order
+        int tracker = count - 1;
+        double min = increase(x, y, order[count - 1], order[0]);
+        for(int i = 0; i + 1 < count; i++){
+            double d = increase(x, y, order[i], order[i + 1]);
+            if(d < min){
+                tracker = i;
+                min = d;
+            }
+        }
+        insertAt(tracker + 1, city);
+    }
+
+    // the ids of the cities in the tour, in visiting order
+    public int[] toArray()
+    {
+        return Arrays.copyOf(order, count);
+    }
+
+    // visit the cities of the tour in the given order instead, which must hold
+    // every city of the tour exactly once
+    public void setOrder(int[] cities)
+    {
+        if(cities.length != count)
+            throw new IllegalArgumentException("the order must hold every city of the tour once");
+        boolean[] placed = new boolean[pos.length];
+        for(int city : cities){
+            if(city < 0 || city >= pos.length || pos[city] == -1 || placed[city])
+                throw new IllegalArgumentException("the order must hold every city of the tour once");
+            placed[city] = true;
+        }
+        for(int i = 0; i < count; i++){
+            order[i] = cities[i];
+            pos[cities[i]] = i;
+        }
+    }
+
+    // print every city in the tour
+    public void print()
+    {
+        for(int i = 0; i < count; i++){
+            System.out.println(points.getPoint(order[i]).toString());
+        }
+    }
+
+    // draw the tour using the given graphics context
+    public void draw(Graphics g)
+    {
+        if(count == 0)
+            return;
+        for(int i = 0; i < count; i++){
+            g.fillOval((int) points.getX(order[i]) - 2, (int) points.getY(order[i]) - 2, 4, 4);
+        }
+        for(int i = 0; i < count; i++){
+            int a = order[i];
+            int b = order[i + 1 == count ? 0 : i + 1];
+            g.drawLine((int) points.getX(a), (int) points.getY(a), (int) points.getX(b), (int) points.getY(b));
+        }
+    }
+
+    //calculate the distance of the tour by summing up the length of every edge
+    public double distance()
+    {
+        if(count == 0)
+            return -1.0;
+        double tD = points.distance(order[count - 1], order[0]);
+        for(int i = 0; i + 1 < count; i++){
+            tD += points.distance(order[i], order[i + 1]);
+        }
+        return tD;
+    }
+
+    // how much longer the tour gets when (x,y) goes between the cities a and b
+    private double increase(double x, double y, int a, int b)
+    {
+        return points.distance(a, x, y) + points.distance(b, x, y) - points.distance(a, b);
+    }
+
+    // put the city at position i, moving the cities from there on one position on
+    private void insertAt(int i, int city)
+    {
+        if(count == order.length)
+            order = Arrays.copyOf(order, 2 * order.length);
+        if(city >= pos.length)
+            grow(Math.max(points.size(), 2 * pos.length));
+        System.arraycopy(order, i, order, i + 1, count - i);
+        count++;
+        order[i] = city;
+        for(int k = i; k < count; k++)
+            pos[order[k]] = k;
+    }
+
+    // put a batch in the store, size the arrays for it once and return the
+    // id of its first city
+    private int reserve(double[] xs, double[] ys)
+    {
+        int first = points.addAll(xs, ys);
+        if(count + xs.length > order.length)
+            order = Arrays.copyOf(order, count + xs.length);
+        if(points.size() > pos.length)
+            grow(points.size());
+        return first;
+    }
+
+    // make room in pos for the given number of cities of the store
+    private void grow(int cities)
+    {
+        int old = pos.length;
+        pos = Arrays.copyOf(pos, cities);
+        Arrays.fill(pos, old, cities, -1);
+    }
+}
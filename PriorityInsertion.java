@@ -0,0 +1,293 @@
+import java.util.*;
+
+/**
+ * Builds a tour with cheapest or farthest insertion. Both grow the tour one
+ * city at a time from city 0 (cheapest insertion can also start from the
+ * convex hull of the cities, which usually ends up a few percent shorter),
+ * but unlike insertSmallest they choose which city goes in next instead of
+ * taking the cities in file order. Cheapest
+ * insertion takes the city that adds the least to the tour, farthest
+ * insertion the city farthest from every city in the tour so far. Either
+ * way the city goes into the edge where it costs the least.
+ *
+ * Every city waiting to go in has an entry in an IndexMinPQ. Its key is the
+ * least it costs to insert (for cheapest insertion) or its distance to the
+ * tour with the sign turned (for farthest insertion). An insertion only
+ * replaces one edge with two new ones, so only those two edges are priced
+ * for every waiting city, and a key goes down when one of them is cheaper.
+ * For cheapest insertion the key of a city whose edge was the one replaced
+ * may now be too low. That is only found out when the city reaches the
+ * front of the queue, where it is priced again over the whole tour with an
+ * EdgeGrid and goes back in. That keeps a step at O(n), and the whole tour
+ * at O(n^2) instead of the O(n^3) of pricing every city on every edge.
+ *
+ * @author
+ * @version
+ */
+
+public class PriorityInsertion
+{
+    // marks a city that is not in the tour
+    private static final int NONE = -1;
+
+    // instance variables
+    //Coordinates of the cities
+    private PointStore points;
+    //The city after every city in the tour, NONE for the ones not in it yet
+    private int[] next;
+    //The edges of the tour, each under the id of the city it leaves
+    private EdgeGrid edges;
+    //The cities waiting to go in, packed at the front, with their coordinates
+    private int[] waiting;
+    private double[] waitingX;
+    private double[] waitingY;
+    private int left;
+    //Place of every waiting city in waiting
+    private int[] places;
+    //Key of every waiting city
+    private IndexMinPQ queue;
+    //The edge every waiting city was last priced on, by its two cities
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    //The loop that measures the waiting cities for farthest insertion
+    private DistanceKernels kernels;
+
+    private PriorityInsertion(PointStore points)
+    {
+        this.points = points;
+        int n = points.size();
+        next = new int[n];
+        Arrays.fill(next, NONE);
+        waiting = new int[n];
+        waitingX = new double[n];
+        waitingY = new double[n];
+        places = new int[n];
+        for(int city = 0; city < n; city++){
+            waiting[city] = city;
+            waitingX[city] = points.getX(city);
+            waitingY[city] = points.getY(city);
+            places[city] = city;
+        }
+        left = n;
+        queue = new IndexMinPQ(n);
+        edgeFrom = new int[n];
+        edgeTo = new int[n];
+        kernels = DistanceKernels.get();
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(int city = 0; city < n; city++){
+            minX = Math.min(minX, waitingX[city]);
+            minY = Math.min(minY, waitingY[city]);
+            maxX = Math.max(maxX, waitingX[city]);
+            maxY = Math.max(maxY, waitingY[city]);
+        }
+        edges = new EdgeGrid(n);
+        edges.reserve(n, minX, minY, maxX, maxY);
+    }
+
+    // a Tour over every city of the store, built with cheapest insertion
+    public static Tour cheapest(PointStore points)
+    {
+        Tour tour = new Tour(points);
+        buildCheapest(tour);
+        return tour;
+    }
+
+    // a Tour over every city of the store, built with farthest insertion
+    public static Tour farthest(PointStore points)
+    {
+        Tour tour = new Tour(points);
+        buildFarthest(tour);
+        return tour;
+    }
+
+    // add every city of the tour's store to it in the order cheapest
+    // insertion leaves them (the tour should not have any of them yet)
+    public static void buildCheapest(TourInterface tour)
+    {
+        PointStore points = tour.getPoints();
+        if(points.size() == 0)
+            return;
+        PriorityInsertion insertion = new PriorityInsertion(points);
+        insertion.seed(new int[] { 0 });
+        insertion.cheapest();
+        for(int city : insertion.order())
+            tour.add(city);
+    }
+
+    // a Tour over every city of the store that starts from its convex hull
+    // and inserts the cities inside it with cheapest insertion
+    public static Tour convexHull(PointStore points)
+    {
+        Tour tour = new Tour(points);
+        buildConvexHull(tour);
+        return tour;
+    }
+
+    // add every city of the tour's store to it in the order cheapest
+    // insertion from the convex hull leaves them (the tour should not have
+    // any of them yet)
+    public static void buildConvexHull(TourInterface tour)
+    {
+        PointStore points = tour.getPoints();
+        if(points.size() == 0)
+            return;
+        PriorityInsertion insertion = new PriorityInsertion(points);
+        insertion.seed(ConvexHull.hull(points));
+        insertion.cheapest();
+        for(int city : insertion.order())
+            tour.add(city);
+    }
+
+    // the same with farthest insertion
+    public static void buildFarthest(TourInterface tour)
+    {
+        PointStore points = tour.getPoints();
+        if(points.size() == 0)
+            return;
+        PriorityInsertion insertion = new PriorityInsertion(points);
+        insertion.seed(new int[] { 0 });
+        insertion.farthest();
+        for(int city : insertion.order())
+            tour.add(city);
+    }
+
+    // start the tour with the given cycle of cities (one city is on an
+    // edge back to itself)
+    private void seed(int[] cycle)
+    {
+        for(int i = 0; i < cycle.length; i++){
+            int a = cycle[i];
+            int b = cycle[(i + 1) % cycle.length];
+            next[a] = b;
+            edges.set(a, points.getX(a), points.getY(a), points.getX(b), points.getY(b));
+            leave(a);
+        }
+    }
+
+    // insert the waiting cities cheapest first
+    private void cheapest()
+    {
+        for(int i = 0; i < left; i++)
+            queue.insert(waiting[i], price(waiting[i]));
+        while(!queue.isEmpty()){
+            int city = queue.minIndex();
+            int a = edgeFrom[city];
+            //the edge it was priced on has been replaced since
+            if(next[a] != edgeTo[city]){
+                queue.changeKey(city, price(city));
+                continue;
+            }
+            queue.delMin();
+            insert(city, a);
+
+            //the two new edges are the only ones that can lower a key
+            int b = next[city];
+            double x = points.getX(city);
+            double y = points.getY(city);
+            double ax = points.getX(a);
+            double ay = points.getY(a);
+            double bx = points.getX(b);
+            double by = points.getY(b);
+            double before = PointStore.distance(ax, ay, x, y);
+            double after = PointStore.distance(x, y, bx, by);
+            for(int i = 0; i < left; i++){
+                double wx = waitingX[i];
+                double wy = waitingY[i];
+                double toCity = PointStore.distance(wx, wy, x, y);
+                double costBefore = PointStore.distance(wx, wy, ax, ay) + toCity - before;
+                double costAfter = toCity + PointStore.distance(wx, wy, bx, by) - after;
+                int w = waiting[i];
+                double key = queue.keyOf(w);
+                if(costBefore < key && costBefore <= costAfter){
+                    queue.changeKey(w, costBefore);
+                    edgeFrom[w] = a;
+                    edgeTo[w] = city;
+                } else if(costAfter < key){
+                    queue.changeKey(w, costAfter);
+                    edgeFrom[w] = city;
+                    edgeTo[w] = b;
+                }
+            }
+        }
+    }
+
+    // insert the waiting cities farthest from the tour first
+    private void farthest()
+    {
+        double[] fromCity = new double[left];
+        int[] seeded = order();
+        for(int i = 0; i < left; i++){
+            double distance = Double.POSITIVE_INFINITY;
+            for(int city : seeded)
+                distance = Math.min(distance, points.distance(city, waitingX[i], waitingY[i]));
+            queue.insert(waiting[i], -distance);
+        }
+        while(!queue.isEmpty()){
+            int city = queue.delMin();
+            double x = points.getX(city);
+            double y = points.getY(city);
+            insert(city, edges.cheapest(x, y));
+
+            //a waiting city can only have come closer to the tour through the new
+            //city; the kernels measure them all at once from the coordinates
+            kernels.distances(waitingX, waitingY, 0, left, x, y, fromCity);
+            for(int i = 0; i < left; i++){
+                int w = waiting[i];
+                if(-fromCity[i] > queue.keyOf(w))
+                    queue.changeKey(w, -fromCity[i]);
+            }
+        }
+    }
+
+    // the least it costs to insert the waiting city, remembering the edge
+    private double price(int city)
+    {
+        int a = edges.cheapest(points.getX(city), points.getY(city));
+        edgeFrom[city] = a;
+        edgeTo[city] = next[a];
+        return edges.cheapestCost();
+    }
+
+    // put the waiting city into the tour after city a
+    private void insert(int city, int a)
+    {
+        int b = next[a];
+        next[city] = b;
+        next[a] = city;
+        leave(city);
+        edges.set(a, points.getX(a), points.getY(a), points.getX(city), points.getY(city));
+        edges.set(city, points.getX(city), points.getY(city), points.getX(b), points.getY(b));
+    }
+
+    // take the city off the waiting list, moving the last one into its place
+    private void leave(int city)
+    {
+        int i = places[city];
+        left--;
+        int last = waiting[left];
+        waiting[i] = last;
+        waitingX[i] = waitingX[left];
+        waitingY[i] = waitingY[left];
+        places[last] = i;
+        places[city] = NONE;
+    }
+
+    // walk the tour from the lowest city in it
+    private int[] order()
+    {
+        int start = 0;
+        while(next[start] == NONE)
+            start++;
+        int[] order = new int[next.length - left];
+        int city = start;
+        for(int i = 0; i < order.length; i++){
+            order[i] = city;
+            city = next[city];
+        }
+        return order;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * The DistanceKernels loops one slot at a time, for when the Vector API is
+ * not there.
+ *
+ * @author
+ * @version
+ */
+
+public class ScalarKernels extends DistanceKernels
+{
+    protected DistanceKernels create()
+    {
+        return new ScalarKernels();
+    }
+
+    public void distances(double[] xs, double[] ys, int first, int last, double x, double y, double[] out)
+    {
+        for(int c = first; c < last; c++)
+            out[c] = PointStore.distance(xs[c], ys[c], x, y);
+    }
+
+    public int nearest(double[] xs, double[] ys, int first, int last, double x, double y)
+    {
+        int tracker = first;
+        double nearest = PointStore.distance(xs[first], ys[first], x, y);
+        int count = 1;
+        for(int c = first + 1; c < last; c++){
+            double d = PointStore.distance(xs[c], ys[c], x, y);
+            if(d < nearest){
+                tracker = c;
+                nearest = d;
+                count = 1;
+            } else if(d == nearest){
+                count++;
+            }
+        }
+        ties = count;
+        return tracker;
+    }
+
+    public int cheapest(double[] xs, double[] ys, double[] nextXs, double[] nextYs, int first, int last,
+                        double x, double y)
+    {
+        int tracker = first;
+        double min = cost(xs, ys, nextXs, nextYs, first, x, y);
+        int count = 1;
+        for(int c = first + 1; c < last; c++){
+            double d = cost(xs, ys, nextXs, nextYs, c, x, y);
+            if(d < min){
+                tracker = c;
+                min = d;
+                count = 1;
+            } else if(d == min){
+                count++;
+            }
+        }
+        ties = count;
+        return tracker;
+    }
+
+    // how much longer the tour gets when (x,y) goes into the edge leaving slot c
+    private static double cost(double[] xs, double[] ys, double[] nextXs, double[] nextYs, int c, double x, double y)
+    {
+        return PointStore.distance(x, y, xs[c], ys[c]) + PointStore.distance(x, y, nextXs[c], nextYs[c])
+            - PointStore.distance(xs[c], ys[c], nextXs[c], nextYs[c]);
+    }
+}
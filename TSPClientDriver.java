@@ -5,33 +5,33 @@ import java.awt.*;
 public class TSPClientDriver 
 {
     private static final String file = "tsp1000.txt";
-    private static Scanner input;
     private static Calendar calendar;
+    private static PointStore points;
     private static Tour tour;
     private static int w, h;
     private static double elapsedTime;
     private static long start, stop;
 
-    public static void main(String[] args) throws FileNotFoundException
+    public static void main(String[] args) throws IOException
     {   
-        // ******* test add method ******
+        //Read the file once, every heuristic below works on the same cities
+        points = PointLoader.load(new File("Data Files",file));
 
-        // Make a new Tour
-        tour = new Tour();
+        w = points.getWidth(); //first two lines are width/height maxes
+        h = points.getHeight(); //used for graphics scaling
 
-        //Open file for reading
-        input = new Scanner(new File("Data Files",file));
+        // ******* test add method ******
 
-        w = input.nextInt(); //first two lines are width/height maxes
-        h = input.nextInt(); //used for graphics scaling
+        // Make a new Tour
+        tour = new Tour(points);
 
         // get start time
         start = calendar.getInstance().getTimeInMillis();
 
-        // add points to the tour from the file.
-        while(input.hasNext())
+        // add points to the tour in the order of the file.
+        for(int city = 0; city < points.size(); city++)
         {
-            tour.add(new Point(input.nextDouble(), input.nextDouble()));
+            tour.add(city);
         }
 
         // get stop time
@@ -53,21 +53,15 @@ public class TSPClientDriver
 
         // ******* test insertNearest method ******
         // Make a new Tour
-        tour = new Tour();
-
-        //Open file for reading
-        input = new Scanner(new File("Data Files",file));
-
-        w = input.nextInt(); //first two lines are width/height maxes
-        h = input.nextInt(); //used for graphics scaling
+        tour = new Tour(points);
 
         // get start time
         start = calendar.getInstance().getTimeInMillis();
 
-        // add points to the tour from the file.
-        while(input.hasNext())
+        // add points to the tour in the order of the file.
+        for(int city = 0; city < points.size(); city++)
         {
-            tour.insertNearest(new Point(input.nextDouble(), input.nextDouble()));
+            tour.insertNearest(city);
         }
 
         // get stop time
@@ -79,21 +73,15 @@ public class TSPClientDriver
         // ******* test insertSmallest method ******
 
         // Make a new Tour
-        tour = new Tour();
-
-        //Open file for reading
-        input = new Scanner(new File("Data Files",file));
-
-        w = input.nextInt(); //first two lines are width/height maxes
-        h = input.nextInt(); //used for graphics scaling
+        tour = new Tour(points);
 
         // get start time
         start = calendar.getInstance().getTimeInMillis();
 
-        // add points to the tour from the file.
-        while(input.hasNext())
+        // add points to the tour in the order of the file.
+        for(int city = 0; city < points.size(); city++)
         {
-            tour.insertSmallest(new Point(input.nextDouble(), input.nextDouble()));
+            tour.insertSmallest(city);
         }
 
         // get stop time
@@ -5,26 +5,79 @@ import java.awt.Graphics;
  * This class is a specialized Linked List of Points that represents a
  * Tour of locations attempting to solve the Traveling Salesperson Problem
  * 
+ * The coordinates live in a PointStore and every node only holds the id of
+ * its city, so several Tours can share one copy of an instance. A city can
+ * be in a Tour at most once.
+ * 
+ * A city can also be taken out of the Tour again, or moved somewhere else.
+ * Its node is found through the node lookup by id (and a Point through a
+ * hash of the coordinates), its neighbors are joined and the stretch of the
+ * Tour around them, wrapping past the ends of the list, is reordered with
+ * LocalRepair, so an update costs about the same however long the Tour is.
+ * A moved city goes back in as a new city of the store, so other Tours on
+ * the same store never see a city change place under them; its old id
+ * stays in the store and leaves the Tour's indexes, which drop dead entries
+ * as they build again.
+ * 
  * @author
  * @version
  */
 
 public class Tour implements TourInterface
 {
+    //Below this many points insertSmallest just scans every edge
+    private static final int EDGE_INDEX_THRESHOLD = 32;
+    //How many inserts go by before the running length is measured again from scratch
+    private static final int DEFAULT_RECOMPUTE_INTERVAL = 100000;
+    //Cities on either side of a removed or moved city that the repair may reorder
+    private static final int REPAIR_SPAN = 25;
+    
     // instance variables
+    //Coordinates of every city the Tour can visit
+    private PointStore points;
     //Number of points in the Tour
     private int count;
     //Holds the first point in the Tour
     private ListNode front;
     //Holds the last point in the Tour
     private ListNode rear;
+    //Spatial index over the points in the Tour, built the first time insertNearest is used
+    private KdTree nearestIndex;
+    //Spatial index over the edges of the Tour, built once insertSmallest sees a long enough list
+    private EdgeGrid edgeIndex;
+    //The node of every city in the Tour, looked up by city id once there is an index
+    private ListNode[] nodes;
+    //A city of the Tour at each location, built the first time a Point is
+    //looked up, and for every city the next one at the same location (-1 for none)
+    private HashMap<Point, Integer> spots;
+    private int[] twins;
+    //Running length of the Tour, updated by every insert
+    private double length;
+    //Inserts since length was last measured from scratch, and how many are allowed
+    private int updates;
+    private int recomputeInterval;
     
     // constructor
     public Tour()
     {
+        this(new PointStore());
+    }
+    
+    // constructor for a Tour over cities of the given store
+    public Tour(PointStore points)
+    {
+        this.points = points;
         count = 0;
         front = null;
         rear = null;
+        nearestIndex = null;
+        edgeIndex = null;
+        nodes = null;
+        spots = null;
+        twins = null;
+        length = 0;
+        updates = 0;
+        recomputeInterval = DEFAULT_RECOMPUTE_INTERVAL;
     }
         
     //return the number of points (nodes) in the list   
@@ -32,29 +85,133 @@ public class Tour implements TourInterface
     {
         return count;
     }
+    
+    // the store holding the coordinates of the cities in the Tour
+    public PointStore getPoints()
+    {
+        return points;
+    }
 
     // append Point p to the end of the list
     public void add(Point p)
     {
-        ListNode n = new ListNode(p);
+        add(points.add(p.getX(), p.getY()));
+    }
+    
+    // append a city of the store to the end of the list
+    public void add(int city)
+    {
+        ListNode n = new ListNode(city);
+        ListNode before = rear;
+        double delta = 0;
         if(rear == null){
             front = n;
         } else{
+            delta = increase(points.getX(city), points.getY(city), rear, front);
             rear.setNext(n);
+            n.setPrev(rear);
         }
         rear = n;
         count++;
+        index(before, n);
+        grow(delta);
     } 
     
+    // append every point in the batch to the end of the list
+    public void addAll(double[] xs, double[] ys)
+    {
+        int first = points.addAll(xs, ys);
+        reserve(points.size());
+        for(int i = 0; i < xs.length; i++)
+            add(first + i);
+    }
+    
+    // add every point in the batch according to the NearestNeighbor heuristic
+    public void insertNearestAll(double[] xs, double[] ys)
+    {
+        int first = points.addAll(xs, ys);
+        reserve(points.size());
+        if(nearestIndex == null)
+            buildNearestIndex(count + xs.length);
+        for(int i = 0; i < xs.length; i++)
+            insertNearest(first + i);
+    }
+    
+    // add every point in the batch according to the InsertSmallest heuristic
+    public void insertSmallestAll(double[] xs, double[] ys)
+    {
+        int first = points.addAll(xs, ys);
+        reserve(points.size());
+        if(edgeIndex == null)
+            buildEdgeIndex(count + xs.length);
+        //every point that is coming lies in this box, so the grid never has to chase the tour outward
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < xs.length; i++){
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        edgeIndex.reserve(count + xs.length, minX, minY, maxX, maxY);
+        for(int i = 0; i < xs.length; i++)
+            insertSmallest(first + i);
+    }
+    
+    // make room in the node lookup for every city of the store
+    private void reserve(int cities)
+    {
+        if(nodes != null && nodes.length < cities)
+            nodes = Arrays.copyOf(nodes, cities);
+    }
+    
+    // the ids of the cities in the list, front to rear
+    public int[] toArray()
+    {
+        int[] order = new int[count];
+        int i = 0;
+        for(ListNode c = front; c != null; c = c.getNext())
+            order[i++] = c.getCity();
+        return order;
+    }
+    
+    // visit the cities of the Tour in the given order instead, which must hold
+    // every city of the Tour exactly once
+    public void setOrder(int[] order)
+    {
+        if(order.length != count)
+            throw new IllegalArgumentException("the order must hold every city of the tour once");
+        if(count == 0)
+            return;
+        mapNodes();
+        boolean[] placed = new boolean[nodes.length];
+        for(int city : order){
+            if(city < 0 || city >= nodes.length || nodes[city] == null || placed[city])
+                throw new IllegalArgumentException("the order must hold every city of the tour once");
+            placed[city] = true;
+        }
+        
+        front = nodes[order[0]];
+        rear = nodes[order[count - 1]];
+        for(int i = 0; i + 1 < count; i++){
+            nodes[order[i]].setNext(nodes[order[i + 1]]);
+            nodes[order[i + 1]].setPrev(nodes[order[i]]);
+        }
+        front.setPrev(null);
+        rear.setNext(null);
+        //the points are the same but every edge may have changed
+        edgeIndex = null;
+        length = measure();
+        updates = 0;
+    }
+    
     // print every node in the list 
     public void print()
     {   
-        ListNode printer = front;
-        for(int i = 0; i < count; count++){
-            if(!(printer==null)){
-                System.out.println(printer.getData().toString());
-                printer = printer.getNext();
-            }
+        for(ListNode printer = front; printer != null; printer = printer.getNext()){
+            System.out.println(points.getPoint(printer.getCity()).toString());
         }
     }
     
@@ -65,121 +222,448 @@ public class Tour implements TourInterface
             return;
         ListNode printer = front;
         while(printer != null){
-            g.fillOval( (int) (printer.getData().getX())-2, (int) (printer.getData()).getY()-2, 4, 4);
+            g.fillOval( (int) x(printer)-2, (int) y(printer)-2, 4, 4);
             printer = printer.getNext();
         }
         ListNode line = front;
         while(!(line == rear)){
-            g.drawLine((int) (line.getData().getX()), (int) (line.getData().getY()),(int) (line.getNext().getData().getX()),(int) (line.getNext().getData().getY()));
+            g.drawLine((int) x(line), (int) y(line),(int) x(line.getNext()),(int) y(line.getNext()));
             line = line.getNext();
         }
-        g.drawLine((int) (front.getData().getX()), (int) (front.getData().getY()),(int) (rear.getData().getX()), (int) (rear.getData().getY()));
+        g.drawLine((int) x(front), (int) y(front),(int) x(rear), (int) y(rear));
     }
     
-    //calculate the distance of the Tour, but summing up the distance between adjacent points
-    //NOTE p.distance(p2) gives the distance where p and p2 are of type Point
+    //return the distance of the Tour, kept up to date by every insert
     public double distance()
     {
         if(front == null)
             return -1.0;
+        return length;
+    }
+    
+    // measure the running length from scratch every given number of inserts,
+    // to keep rounding errors from piling up (0 never measures it again)
+    public void setRecomputeInterval(int interval)
+    {
+        recomputeInterval = interval;
+    }
+    
+    // add the change the last insert made to the running length
+    private void grow(double delta)
+    {
+        length += delta;
+        updates++;
+        if(recomputeInterval > 0 && updates >= recomputeInterval){
+            length = measure();
+            updates = 0;
+        }
+    }
+
+    //calculate the distance of the Tour, but summing up the distance between adjacent points
+    private double measure()
+    {
         double tD = 0;
         ListNode l = front;
         while(l.getNext() != null){
-            tD += l.getData().distance(l.getNext().getData());
+            tD += points.distance(l.getCity(), l.getNext().getCity());
             l = l.getNext();
         }
-        tD += l.getData().distance(front.getData());
+        tD += points.distance(l.getCity(), front.getCity());
         return tD;
     }
 
     // add Point p to the list according to the NearestNeighbor heuristic
     public void insertNearest(Point p)
+    {   
+        insertNearest(points.add(p.getX(), p.getY()));
+    }
+    
+    // add a city of the store to the list according to the NearestNeighbor heuristic
+    public void insertNearest(int city)
     {   
         if(front == null){
-            add(p);
+            add(city);
             return;
         }
+        if(nearestIndex == null)
+            buildNearestIndex(2 * count);
         
+        double x = points.getX(city);
+        double y = points.getY(city);
         ListNode c;
-        ListNode tracker = front;
-        double nearest = (front.getData().distance(p));
-        for(c = front; c != null; c = c.getNext()){
-            double d = (c.getData().distance(p));
-            if(nearest >  d){
-                tracker = c;
-                nearest =  d;
-            }          
+        ListNode tracker = nodes[nearestIndex.nearest(x, y)];
+        //a scan from front keeps the first of several equally near points
+        if(nearestIndex.ties() > 1){
+            double nearest = nearestIndex.nearestDistance();
+            tracker = front;
+            while(points.distance(tracker.getCity(), x, y) != nearest)
+                tracker = tracker.getNext();
         }
         if( tracker.getNext() == null){
-            add(p);
+            add(city);
             return;
         }
-        c = new ListNode(p);
-        c.setNext(tracker.getNext());
-        tracker.setNext(c);
+        double delta = increase(x, y, tracker, tracker.getNext());
+        c = new ListNode(city);
+        link(tracker, c);
         count++;
+        index(tracker, c);
+        grow(delta);
     }
-    
+
         
     // add Point p to the list according to the InsertSmallest heuristic
     public void insertSmallest(Point p)
+    { 
+        insertSmallest(points.add(p.getX(), p.getY()));
+    }
+    
+    // add a city of the store to the list according to the InsertSmallest heuristic
+    public void insertSmallest(int city)
     { 
         if(front == null){
-            add(p);
+            add(city);
             return;
         } 
+        if(edgeIndex == null && count >= EDGE_INDEX_THRESHOLD)
+            buildEdgeIndex(2 * count);
         ListNode tracker = rear;
         
-        ListNode insert = new ListNode(p);
-        double min = insert.getData().distance(tracker.getData())+insert.getData().distance(front.getData());
-        for(ListNode c = front; c.getNext() != null; c = c.getNext()){
-            double tempD = insert.getData().distance(c.getData())+insert.getData().distance(c.getNext().getData());
-            if( tempD < min){
-                tracker = c;
-                min = tempD;
+        double x = points.getX(city);
+        double y = points.getY(city);
+        ListNode insert = new ListNode(city);
+        double min;
+        if(edgeIndex != null){
+            tracker = nodes[edgeIndex.cheapest(x, y)];
+            min = edgeIndex.cheapestCost();
+            //the scan below tries rear first and keeps the first of several equally cheap edges
+            if(edgeIndex.ties() > 1){
+                if(increase(x, y, rear, front) == min){
+                    tracker = rear;
+                } else{
+                    tracker = front;
+                    while(increase(x, y, tracker, tracker.getNext()) != min)
+                        tracker = tracker.getNext();
+                }
+            }
+        } else{
+            min = increase(x, y, tracker, front);
+            for(ListNode c = front; c.getNext() != null; c = c.getNext()){
+                double tempD = increase(x, y, c, c.getNext());
+                if( tempD < min){
+                    tracker = c;
+                    min = tempD;
+                }
             }
         }
         if( tracker.getNext() == null){
-            add(p);
+            add(city);
             return;
         }
-        insert.setNext(tracker.getNext());
-        tracker.setNext(insert);
+        link(tracker, insert);
         count++;
+        index(tracker, insert);
+        grow(min);
+    }
+    
+    // take the city at Point p out of the list, and tell whether there was one
+    public boolean remove(Point p)
+    {
+        int city = find(p.getX(), p.getY());
+        return city != -1 && remove(city);
+    }
+    
+    // take a city of the store out of the list, join its neighbors and
+    // repair the Tour around them, and tell whether it was in the list
+    public boolean remove(int city)
+    {
+        if(front == null)
+            return false;
+        mapNodes();
+        if(city < 0 || city >= nodes.length || nodes[city] == null)
+            return false;
+        ListNode n = nodes[city];
+        nodes[city] = null;
+        if(spots != null)
+            dropSpot(city);
+        if(nearestIndex != null)
+            nearestIndex.remove(city);
+        if(edgeIndex != null)
+            edgeIndex.remove(city);
+        if(count == 1){
+            front = null;
+            rear = null;
+            count = 0;
+            length = 0;
+            return true;
+        }
+        
+        //the neighbors around the cycle, which become joined
+        ListNode a = before(n);
+        ListNode b = after(n);
+        double delta = -increase(points.getX(city), points.getY(city), a, b);
+        if(n == front){
+            front = n.getNext();
+            front.setPrev(null);
+        } else if(n == rear){
+            rear = n.getPrev();
+            rear.setNext(null);
+        } else{
+            n.getPrev().setNext(n.getNext());
+            n.getNext().setPrev(n.getPrev());
+        }
+        count--;
+        if(edgeIndex != null)
+            indexEdge(a);
+        if(count == 1)
+            length = 0;
+        else
+            grow(delta);
+        repair(a);
+        return true;
+    }
+    
+    // move the city at Point p to the Point to, and tell whether there was a
+    // city at p
+    public boolean move(Point p, Point to)
+    {
+        int city = find(p.getX(), p.getY());
+        return city != -1 && move(city, to.getX(), to.getY()) != -1;
+    }
+    
+    // move a city of the list to (x,y) and return the id it has there, or -1
+    // when it was not in the list: the city is taken out, and a new city of
+    // the store at (x,y) goes in according to the InsertSmallest heuristic,
+    // with the Tour repaired around both places
+    // (the store's coordinates never change, as other Tours may share them)
+    public int move(int city, double x, double y)
+    {
+        if(!remove(city))
+            return -1;
+        int moved = points.add(x, y);
+        insertSmallest(moved);
+        repair(nodes[moved]);
+        return moved;
+    }
+    
+    // the city of the list at (x,y), or -1 when there is none
+    private int find(double x, double y)
+    {
+        if(front == null)
+            return -1;
+        if(spots == null){
+            mapNodes();
+            spots = new HashMap<Point, Integer>(2 * count);
+            twins = new int[nodes.length];
+            for(ListNode c = front; c != null; c = c.getNext())
+                addSpot(c.getCity());
+        }
+        Integer city = spots.get(new Point(x, y));
+        return (city == null) ? -1 : city;
+    }
+    
+    // file the city under its location in spots
+    private void addSpot(int city)
+    {
+        if(city >= twins.length)
+            twins = Arrays.copyOf(twins, nodes.length);
+        Integer other = spots.put(points.getPoint(city), city);
+        twins[city] = (other == null) ? -1 : other;
+    }
+    
+    // take the city out of spots, leaving any other city at its location
+    private void dropSpot(int city)
+    {
+        Point p = points.getPoint(city);
+        int c = spots.get(p);
+        if(c == city){
+            if(twins[city] == -1)
+                spots.remove(p);
+            else
+                spots.put(p, twins[city]);
+            return;
+        }
+        while(twins[c] != city)
+            c = twins[c];
+        twins[c] = twins[city];
+    }
+    
+    // reorder the cities up to REPAIR_SPAN away from node c on either side,
+    // going around the ends of the list, with LocalRepair
+    private void repair(ListNode c)
+    {
+        //a short Tour is taken whole, from the city after c on round to it
+        int back = Math.min(REPAIR_SPAN, (count - 1) / 2);
+        int span = back + 1 + Math.min(REPAIR_SPAN, count - 1 - back);
+        ListNode first = c;
+        for(int i = 0; i < back; i++)
+            first = before(first);
+        int[] path = new int[span];
+        //where front is in the path, -1 when it is not in it
+        int frontAt = -1;
+        ListNode l = first;
+        for(int i = 0; i < span; i++){
+            if(l == front)
+                frontAt = i;
+            path[i] = l.getCity();
+            l = after(l);
+        }
+        double gain = LocalRepair.improve(points, path);
+        if(gain == 0)
+            return;
+        
+        //the first and last city stay, so only the links inside change; the
+        //list is closed into a cycle for that and opened again where front was
+        rear.setNext(front);
+        front.setPrev(rear);
+        for(int i = 0; i + 1 < span; i++){
+            nodes[path[i]].setNext(nodes[path[i + 1]]);
+            nodes[path[i + 1]].setPrev(nodes[path[i]]);
+        }
+        if(frontAt != -1){
+            front = nodes[path[frontAt]];
+            rear = front.getPrev();
+        }
+        front.setPrev(null);
+        rear.setNext(null);
+        if(edgeIndex != null){
+            for(int i = 0; i + 1 < span; i++)
+                indexEdge(nodes[path[i]]);
+        }
+        grow(-gain);
+    }
+    
+    // the node after n, front after rear
+    private ListNode after(ListNode n)
+    {
+        return (n.getNext() == null) ? front : n.getNext();
+    }
+    
+    // the node before n, rear before front
+    private ListNode before(ListNode n)
+    {
+        return (n.getPrev() == null) ? rear : n.getPrev();
+    }
+    
+    // link node n in right after node before, which is not the last one
+    private void link(ListNode before, ListNode n)
+    {
+        n.setNext(before.getNext());
+        n.setPrev(before);
+        before.getNext().setPrev(n);
+        before.setNext(n);
+    }
+    
+    // how much longer the tour gets when (x,y) goes between the neighbors a and b
+    private double increase(double x, double y, ListNode a, ListNode b)
+    {
+        return points.distance(a.getCity(), x, y) + points.distance(b.getCity(), x, y)
+            - points.distance(a.getCity(), b.getCity());
+    }
+    
+    private double x(ListNode n)
+    {
+        return points.getX(n.getCity());
+    }
+    
+    private double y(ListNode n)
+    {
+        return points.getY(n.getCity());
+    }
+    
+    // put every point already in the list into nearestIndex, with room for capacity points
+    private void buildNearestIndex(int capacity)
+    {
+        nearestIndex = new KdTree(Math.max(capacity, 16));
+        mapNodes();
+        for(ListNode c = front; c != null; c = c.getNext())
+            nearestIndex.insert(c.getCity(), x(c), y(c));
+    }
+    
+    // put every edge already in the list into edgeIndex, with room for capacity edges
+    private void buildEdgeIndex(int capacity)
+    {
+        edgeIndex = new EdgeGrid(Math.max(capacity, 16));
+        mapNodes();
+        for(ListNode c = front; c != null; c = c.getNext())
+            indexEdge(c);
+    }
+    
+    // fill in the node lookup the first time an index is built
+    private void mapNodes()
+    {
+        if(nodes != null)
+            return;
+        nodes = new ListNode[Math.max(points.size(), 16)];
+        for(ListNode c = front; c != null; c = c.getNext())
+            nodes[c.getCity()] = c;
+    }
+    
+    // update the indexes after node n was linked in right after node before
+    // (before is null when n is the first node)
+    private void index(ListNode before, ListNode n)
+    {
+        if(nodes == null)
+            return;
+        if(n.getCity() >= nodes.length)
+            nodes = Arrays.copyOf(nodes, Math.max(points.size(), 2 * nodes.length));
+        nodes[n.getCity()] = n;
+        if(spots != null)
+            addSpot(n.getCity());
+        if(nearestIndex != null)
+            nearestIndex.insert(n.getCity(), x(n), y(n));
+        if(edgeIndex != null){
+            if(before != null)
+                indexEdge(before);
+            indexEdge(n);
+        }
+    }
+    
+    // file the edge leaving node c (back to front for rear) in edgeIndex
+    private void indexEdge(ListNode c)
+    {
+        ListNode b = after(c);
+        edgeIndex.set(c.getCity(), x(c), y(c), x(b), y(b));
     }
     
     
     // This is a private inner class, which is a separate class within a class.
     private class ListNode
     {
-        private Point data;
+        //id of the city in points
+        private int city;
         private ListNode next;
-        public ListNode(Point p, ListNode n)
+        private ListNode prev;
+        public ListNode(int city, ListNode n)
         {
-            this.data = p;
+            this.city = city;
             this.next = n;
         }
         
-        public ListNode(Point p)
+        public ListNode(int city)
         {
-            this(p, null);
+            this(city, null);
         }
         
         public void setNext(ListNode n){
             next = n;
         }
         
-        public void setData(Point p){
-            data = p;
+        public void setPrev(ListNode p){
+            prev = p;
         }
         
-        public Point getData(){
-            return data;
+        public int getCity(){
+            return city;
         }
         
         public ListNode getNext(){
             return next;
         }
+        
+        public ListNode getPrev(){
+            return prev;
+        }
     }
     
     
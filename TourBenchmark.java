@@ -0,0 +1,202 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * A small benchmark harness for the Tour heuristics, laid out like JMH: every
+ * benchmark runs a few warmup iterations and then several measured ones of a
+ * fixed length, and the results are reported both as throughput (ops/s) and
+ * as average time per operation (us/op), with the standard deviation over the
+ * measured iterations as the error.
+ *
+ * One operation of add, insertNearest, insertSmallest and hilbert builds a
+ * whole tour over the data set. One operation of distance reads the length of a tour
+ * that was built beforehand. Every data set is read once with PointLoader.
+ * Every benchmark runs on each tour class named with -c, the linked Tour
+ * unless told otherwise; -c Tour,ArrayTour,PositionTour,TwoLevelTour compares
+ * it with the array and segment tours.
+ *
+ * Run it from the folder that holds "Data Files":
+ *
+ * java TourBenchmark [-p dataSet,...] [-b benchmark,...] [-c tour,...] [-wi n] [-i n] [-t seconds]
+ *
+ * @author
+ * @version
+ */
+
+public class TourBenchmark
+{
+    // data sets, benchmarks and tour classes that run when none are named on the command line
+    private static final String[] DATA_SETS = {
+        "tsp100.txt", "tsp1000.txt", "bier127.txt", "usa13509.txt",
+        "mona-20k.txt", "mona-50k.txt", "mona-100k.txt"
+    };
+    private static final String[] BENCHMARKS = {"add", "insertNearest", "insertSmallest", "hilbert", "distance"};
+    private static final String[] TOURS = {"Tour"};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final double ITERATION_SECONDS = 1.0;
+
+    // results land here so the JIT cannot throw the work away
+    private static volatile double sink;
+
+    public static void main(String[] args) throws IOException
+    {
+        String[] dataSets = DATA_SETS;
+        String[] benchmarks = BENCHMARKS;
+        String[] tours = TOURS;
+        int warmups = WARMUP_ITERATIONS;
+        int iterations = MEASUREMENT_ITERATIONS;
+        double seconds = ITERATION_SECONDS;
+        if(args.length % 2 != 0)
+            throw new IllegalArgumentException("option " + args[args.length - 1] + " has no value");
+        for(int i = 0; i + 1 < args.length; i += 2){
+            if(args[i].equals("-p"))
+                dataSets = args[i + 1].split(",");
+            else if(args[i].equals("-b"))
+                benchmarks = args[i + 1].split(",");
+            else if(args[i].equals("-c"))
+                tours = args[i + 1].split(",");
+            else if(args[i].equals("-wi"))
+                warmups = Integer.parseInt(args[i + 1]);
+            else if(args[i].equals("-i"))
+                iterations = Integer.parseInt(args[i + 1]);
+            else if(args[i].equals("-t"))
+                seconds = Double.parseDouble(args[i + 1]);
+            else
+                throw new IllegalArgumentException("unknown option " + args[i]);
+        }
+
+        //every data set is read once, and the tours only read the stores
+        PointStore[] stores = new PointStore[dataSets.length];
+        for(int d = 0; d < dataSets.length; d++)
+            stores[d] = PointLoader.load(new File("Data Files", dataSets[d]));
+
+        List<String> rows = new ArrayList<String>();
+        for(String benchmark : benchmarks){
+            for(String tour : tours){
+                for(int d = 0; d < dataSets.length; d++){
+                    String dataSet = dataSets[d];
+                    PointStore points = stores[d];
+                    double[] opsPerSecond = run(benchmark, tour, points, warmups, iterations, seconds);
+                    double mean = mean(opsPerSecond);
+                    double error = deviation(opsPerSecond, mean);
+                    double[] usPerOp = new double[opsPerSecond.length];
+                    for(int i = 0; i < usPerOp.length; i++)
+                        usPerOp[i] = 1e6 / opsPerSecond[i];
+                    double meanTime = mean(usPerOp);
+                    double errorTime = deviation(usPerOp, meanTime);
+                    rows.add(String.format("%-16s %-13s %-14s %-6s %3d %16.3f +- %12.3f  ops/s",
+                        benchmark, tour, dataSet, "thrpt", iterations, mean, error));
+                    rows.add(String.format("%-16s %-13s %-14s %-6s %3d %16.3f +- %12.3f  us/op",
+                        benchmark, tour, dataSet, "avgt", iterations, meanTime, errorTime));
+                    System.out.println(rows.get(rows.size() - 2));
+                    System.out.println(rows.get(rows.size() - 1));
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-16s %-13s %-14s %-6s %3s %16s   %12s  %s",
+            "Benchmark", "(tour)", "(dataSet)", "Mode", "Cnt", "Score", "Error", "Units"));
+        for(String row : rows)
+            System.out.println(row);
+    }
+
+    // warm up, then return the throughput of every measured iteration
+    private static double[] run(String benchmark, String tour, PointStore points, int warmups, int iterations, double seconds)
+    {
+        TourInterface built = null;
+        if(benchmark.equals("distance")){
+            built = newTour(tour, points);
+            for(int city = 0; city < points.size(); city++)
+                built.insertSmallest(city);
+        }
+
+        for(int i = 0; i < warmups; i++)
+            iteration(benchmark, tour, points, built, seconds);
+        double[] opsPerSecond = new double[iterations];
+        for(int i = 0; i < iterations; i++)
+            opsPerSecond[i] = iteration(benchmark, tour, points, built, seconds);
+        return opsPerSecond;
+    }
+
+    // run the benchmark over and over for the given time and return ops/s
+    // fast operations run in growing batches so reading the clock does not
+    // dominate what is measured
+    private static double iteration(String benchmark, String tour, PointStore points, TourInterface built, double seconds)
+    {
+        long budget = (long) (seconds * 1e9);
+        long ops = 0;
+        int batch = 1;
+        long start = System.nanoTime();
+        long elapsed = 0;
+        while(elapsed < budget){
+            long before = elapsed;
+            for(int i = 0; i < batch; i++)
+                sink += operation(benchmark, tour, points, built);
+            ops += batch;
+            elapsed = System.nanoTime() - start;
+            if(elapsed - before < 1000000 && batch < (1 << 30))
+                batch *= 2;
+        }
+        return ops / (elapsed / 1e9);
+    }
+
+    // one operation of the named benchmark
+    private static double operation(String benchmark, String kind, PointStore points, TourInterface built)
+    {
+        if(benchmark.equals("distance"))
+            return built.distance();
+
+        TourInterface tour = newTour(kind, points);
+        int n = points.size();
+        if(benchmark.equals("add")){
+            for(int city = 0; city < n; city++)
+                tour.add(city);
+        } else if(benchmark.equals("insertNearest")){
+            for(int city = 0; city < n; city++)
+                tour.insertNearest(city);
+        } else if(benchmark.equals("insertSmallest")){
+            for(int city = 0; city < n; city++)
+                tour.insertSmallest(city);
+        } else if(benchmark.equals("hilbert")){
+            for(int city : HilbertCurve.order(points))
+                tour.add(city);
+        } else{
+            throw new IllegalArgumentException("unknown benchmark " + benchmark);
+        }
+        return tour.distance();
+    }
+
+    // an empty tour of the named class over the store
+    private static TourInterface newTour(String kind, PointStore points)
+    {
+        if(kind.equals("Tour"))
+            return new Tour(points);
+        if(kind.equals("ArrayTour"))
+            return new ArrayTour(points);
+        if(kind.equals("PositionTour"))
+            return new PositionTour(points);
+        if(kind.equals("TwoLevelTour"))
+            return new TwoLevelTour(points);
+        throw new IllegalArgumentException("unknown tour " + kind);
+    }
+
+    private static double mean(double[] values)
+    {
+        double sum = 0;
+        for(double v : values)
+            sum += v;
+        return sum / values.length;
+    }
+
+    private static double deviation(double[] values, double mean)
+    {
+        if(values.length < 2)
+            return 0;
+        double sum = 0;
+        for(double v : values)
+            sum += (v - mean) * (v - mean);
+        return Math.sqrt(sum / (values.length - 1));
+    }
+}
@@ -9,6 +9,25 @@ public interface TourInterface
     public void insertNearest(Point p);
     public void insertSmallest(Point p);
     
+    // the same three heuristics for a city of the PointStore the tour was
+    // made with, given by its id
+    public PointStore getPoints();
+    public void add(int city);
+    public void insertNearest(int city);
+    public void insertSmallest(int city);
+    
+    // the same three heuristics for a whole batch of points, taken in order
+    // from the coordinate arrays xs and ys, ending with the same tour as
+    // calling the single point method once for every point
+    public void addAll(double[] xs, double[] ys);
+    public void insertNearestAll(double[] xs, double[] ys);
+    public void insertSmallestAll(double[] xs, double[] ys);
+    
+    // the ids of the cities in visiting order, and a way to visit the same
+    // cities in another order, for the optimizers that improve a finished tour
+    public int[] toArray();
+    public void setOrder(int[] order);
+    
     public void print();
     public void draw(Graphics g);
 }
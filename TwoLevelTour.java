@@ -0,0 +1,683 @@
+import java.util.*;
+import java.awt.Graphics;
+
+/**
+ * The visiting order of a tour as a two-level list: the tour is cut into
+ * segments of about sqrt(n) cities, each kept in an array of its own with a
+ * bit that says whether it is read backwards, and the segments are linked
+ * in tour order and numbered along it. The next or previous city, and
+ * whether a city lies between two others, are O(1) from a city's segment
+ * number and its place in the segment.
+ *
+ * To reverse a path, the segments at its ends are split so the path is made
+ * of whole segments, and those are flipped and linked the other way round
+ * (or the rest of the tour is, when that has fewer segments). That touches
+ * O(sqrt n) cities and segments instead of the O(n) cities an array moves on
+ * a long path. Pieces left small by the splits are merged into a neighbor,
+ * and when there are still too many segments they are all laid out again.
+ * Merged and freed segments keep their arrays for the next split.
+ *
+ * It is a TourInterface as well, so it can be built with the usual
+ * heuristics. They scan every city or edge in visiting order, as
+ * PositionTour does, and break ties the same way Tour does. A city goes into
+ * its neighbor's segment, which is split once it holds twice the group
+ * size, and the segments are laid out again as the tour outgrows them.
+ *
+ * @author
+ * @version
+ */
+
+public class TwoLevelTour implements TourInterface, OrientedTour
+{
+    // marks a missing city or segment
+    private static final int NONE = -1;
+    // fewest cities a segment is laid out with
+    private static final int MIN_GROUP = 8;
+
+    // instance variables
+    //Coordinates of every city the tour can visit
+    private PointStore points;
+    //Number of cities in the tour, and the size segments are laid out with
+    private int count;
+    private int group;
+    //Segment of every city of the store (NONE when it is not in the tour),
+    //and its place in that segment's array
+    private int[] segments;
+    private int[] slots;
+
+    //Cities of every segment as stored, their number, and whether the
+    //segment is read from the end
+    private int[][] items;
+    private int[] sizes;
+    private boolean[] reversed;
+    //Next and previous segment in tour order, and the number of every
+    //segment counting along the tour from head
+    private int[] nextSegment;
+    private int[] prevSegment;
+    private int[] ranks;
+    private int head;
+    //Number of segments in use, and the ids free for new ones
+    private int segmentCount;
+    private int[] free;
+    private int freeCount;
+
+    // constructor
+    public TwoLevelTour()
+    {
+        this(new PointStore());
+    }
+
+    // constructor for a tour over cities of the given store
+    public TwoLevelTour(PointStore points)
+    {
+        this(points, new int[0]);
+    }
+
+    // constructor for the tour that visits the given cities of the store, in
+    // that order
+    public TwoLevelTour(PointStore points, int[] cities)
+    {
+        this.points = points;
+        segments = new int[points.size()];
+        slots = new int[points.size()];
+        Arrays.fill(segments, NONE);
+        layout(cities);
+    }
+
+    //return the number of cities in the tour
+    public int size()
+    {
+        return count;
+    }
+
+    // the store holding the coordinates of the cities in the tour
+    public PointStore getPoints()
+    {
+        return points;
+    }
+
+    // is the city in the tour
+    public boolean contains(int city)
+    {
+        return city < segments.length && segments[city] != NONE;
+    }
+
+    // the city after the given one
+    public int next(int city)
+    {
+        int s = segments[city];
+        int o = offset(city);
+        if(o + 1 < sizes[s])
+            return at(s, o + 1);
+        return at(nextSegment[s], 0);
+    }
+
+    // the city before the given one
+    public int prev(int city)
+    {
+        int s = segments[city];
+        int o = offset(city);
+        if(o > 0)
+            return at(s, o - 1);
+        int p = prevSegment[s];
+        return at(p, sizes[p] - 1);
+    }
+
+    // is b met on the way forward from a to c (a, b and c included)
+    public boolean between(int a, int b, int c)
+    {
+        long i = key(a);
+        long j = key(b);
+        long k = key(c);
+        if(i <= k)
+            return i <= j && j <= k;
+        return j >= i || j <= k;
+    }
+
+    // are a, b and c three different cities met in that order going forward
+    public boolean sequence(int a, int b, int c)
+    {
+        return a != b && b != c && a != c && between(a, b, c);
+    }
+
+    // reverse the path that runs forward from city from to city to
+    public void reverse(int from, int to)
+    {
+        if(from == to)
+            return;
+        int s = segments[from];
+        if(s == segments[to]){
+            int i = offset(from);
+            int j = offset(to);
+            //a path inside one segment is turned around where it is
+            if(i < j){
+                reverseInside(s, i, j);
+                return;
+            }
+            //the rest of the tour is inside it, unless there is no rest
+            if(j + 1 < i){
+                reverseInside(s, j + 1, i - 1);
+                return;
+            }
+        }
+
+        //the cities on either side of the path, whose segments may end up small
+        int outsideFrom = prev(from);
+        int outsideTo = next(to);
+        //cut the segments so the path starts and ends at segment boundaries
+        if(offset(from) > 0)
+            split(segments[from], offset(from));
+        if(offset(to) < sizes[segments[to]] - 1)
+            split(segments[to], offset(to) + 1);
+        number();
+        int first = segments[from];
+        int last = segments[to];
+        int length = ranks[last] - ranks[first];
+        if(length < 0)
+            length += segmentCount;
+        length++;
+        //turning the rest of the tour around gives the same cycle
+        if(2 * length > segmentCount && length < segmentCount){
+            int t = first;
+            first = nextSegment[last];
+            last = prevSegment[t];
+        }
+        reverseSegments(first, last);
+
+        //merge the small pieces around the ends of the path into their neighbors
+        mergeSmall(segments[from]);
+        mergeSmall(segments[to]);
+        mergeSmall(segments[outsideFrom]);
+        mergeSmall(segments[outsideTo]);
+        if(segmentCount > 4 * (count / group + 1))
+            layout(toArray());
+        else
+            number();
+    }
+
+    // replace the edges (a,b) and (c,d) by (a,c) and (b,d), where b follows a
+    // and d follows c in the same direction, either forward or backward
+    public void exchange(int a, int b, int c, int d)
+    {
+        if(b == next(a))
+            reverse(b, c);
+        else
+            reverse(c, b);
+    }
+
+    // append Point p to the end of the tour
+    public void add(Point p)
+    {
+        add(points.add(p.getX(), p.getY()));
+    }
+
+    // append a city of the store to the end of the tour
+    public void add(int city)
+    {
+        if(count == 0)
+            place(head, 0, city);
+        else
+            insertAfter(last(), city);
+    }
+
+    // append every point in the batch to the end of the tour
+    public void addAll(double[] xs, double[] ys)
+    {
+        int first = reserve(xs, ys);
+        for(int i = 0; i < xs.length; i++)
+            add(first + i);
+    }
+
+    // add every point in the batch according to the NearestNeighbor heuristic
+    public void insertNearestAll(double[] xs, double[] ys)
+    {
+        int first = reserve(xs, ys);
+        for(int i = 0; i < xs.length; i++)
+            insertNearest(first + i);
+    }
+
+    // add every point in the batch according to the InsertSmallest heuristic
+    public void insertSmallestAll(double[] xs, double[] ys)
+    {
+        int first = reserve(xs, ys);
+        for(int i = 0; i < xs.length; i++)
+            insertSmallest(first + i);
+    }
+
+    // add Point p to the tour according to the NearestNeighbor heuristic
+    public void insertNearest(Point p)
+    {
+        insertNearest(points.add(p.getX(), p.getY()));
+    }
+
+    // add Point p to the tour according to the InsertSmallest heuristic
+    public void insertSmallest(Point p)
+    {
+        insertSmallest(points.add(p.getX(), p.getY()));
+    }
+
+    // add a city of the store to the tour according to the NearestNeighbor heuristic
+    public void insertNearest(int city)
+    {
+        if(count == 0){
+            add(city);
+            return;
+        }
+        double x = points.getX(city);
+        double y = points.getY(city);
+        //the first of several equally near cities in visiting order
+        int tracker = NONE;
+        double min = Double.POSITIVE_INFINITY;
+        int s = head;
+        for(int k = 0; k < segmentCount; k++){
+            for(int o = 0; o < sizes[s]; o++){
+                int c = at(s, o);
+                double d = points.distance(c, x, y);
+                if(d < min){
+                    tracker = c;
+                    min = d;
+                }
+            }
+            s = nextSegment[s];
+        }
+        insertAfter(tracker, city);
+    }
+
+    // add a city of the store to the tour according to the InsertSmallest heuristic
+    public void insertSmallest(int city)
+    {
+        if(count == 0){
+            add(city);
+            return;
+        }
+        double x = points.getX(city);
+        double y = points.getY(city);
+        //the closing edge first, then the rest in visiting order
+        int tracker = last();
+        double min = increase(x, y, tracker, at(head, 0));
+        int previous = NONE;
+        int s = head;
+        for(int k = 0; k < segmentCount; k++){
+            for(int o = 0; o < sizes[s]; o++){
+                int c = at(s, o);
+                if(previous != NONE){
+                    double d = increase(x, y, previous, c);
+                    if(d < min){
+                        tracker = previous;
+                        min = d;
+                    }
+                }
+                previous = c;
+            }
+            s = nextSegment[s];
+        }
+        insertAfter(tracker, city);
+    }
+
+    // visit the cities of the tour in the given order instead, which must hold
+    // every city of the tour exactly once
+    public void setOrder(int[] cities)
+    {
+        if(cities.length != count)
+            throw new IllegalArgumentException("the order must hold every city of the tour once");
+        boolean[] placed = new boolean[segments.length];
+        for(int city : cities){
+            if(city < 0 || city >= segments.length || segments[city] == NONE || placed[city])
+                throw new IllegalArgumentException("the order must hold every city of the tour once");
+            placed[city] = true;
+        }
+        layout(cities);
+    }
+
+    // print every city in the tour
+    public void print()
+    {
+        for(int city : toArray()){
+            System.out.println(points.getPoint(city).toString());
+        }
+    }
+
+    // draw the tour using the given graphics context
+    public void draw(Graphics g)
+    {
+        if(count == 0)
+            return;
+        int[] order = toArray();
+        for(int i = 0; i < count; i++){
+            g.fillOval((int) points.getX(order[i]) - 2, (int) points.getY(order[i]) - 2, 4, 4);
+        }
+        for(int i = 0; i < count; i++){
+            int a = order[i];
+            int b = order[i + 1 == count ? 0 : i + 1];
+            g.drawLine((int) points.getX(a), (int) points.getY(a), (int) points.getX(b), (int) points.getY(b));
+        }
+    }
+
+    //calculate the distance of the tour by summing up the length of every edge
+    public double distance()
+    {
+        if(count == 0)
+            return -1.0;
+        int first = at(head, 0);
+        int previous = first;
+        double tD = 0;
+        int s = head;
+        for(int k = 0; k < segmentCount; k++){
+            for(int o = 0; o < sizes[s]; o++){
+                int c = at(s, o);
+                tD += points.distance(previous, c);
+                previous = c;
+            }
+            s = nextSegment[s];
+        }
+        return tD + points.distance(previous, first);
+    }
+
+    // the cities in visiting order
+    public int[] toArray()
+    {
+        int[] order = new int[count];
+        int i = 0;
+        int s = head;
+        for(int k = 0; k < segmentCount; k++){
+            for(int o = 0; o < sizes[s]; o++)
+                order[i++] = at(s, o);
+            s = nextSegment[s];
+        }
+        return order;
+    }
+
+    // cut the cities into segments of the group size, in the given order
+    private void layout(int[] cities)
+    {
+        count = cities.length;
+        group = Math.max(MIN_GROUP, (int) Math.sqrt(count));
+        int n = Math.max(1, (count + group - 1) / group);
+        //room for the splits before the next layout
+        int capacity = 4 * (count / group + 1) + 8;
+        //the arrays of the old segments are used again where they are long enough
+        int[][] old = items;
+        items = new int[capacity][];
+        sizes = new int[capacity];
+        reversed = new boolean[capacity];
+        nextSegment = new int[capacity];
+        prevSegment = new int[capacity];
+        ranks = new int[capacity];
+        free = new int[capacity];
+        freeCount = 0;
+        for(int s = capacity - 1; s >= n; s--)
+            free[freeCount++] = s;
+        segmentCount = n;
+        head = 0;
+        for(int s = 0; s < n; s++){
+            int first = s * group;
+            int size = Math.min(group, count - first);
+            if(old != null && s < old.length && old[s] != null && old[s].length >= 2 * group)
+                items[s] = old[s];
+            else
+                items[s] = new int[2 * group];
+            sizes[s] = size;
+            for(int o = 0; o < size; o++){
+                int city = cities[first + o];
+                items[s][o] = city;
+                segments[city] = s;
+                slots[city] = o;
+            }
+            nextSegment[s] = s + 1 == n ? 0 : s + 1;
+            prevSegment[s] = s == 0 ? n - 1 : s - 1;
+            ranks[s] = s;
+        }
+    }
+
+    // the last city in visiting order
+    private int last()
+    {
+        int s = prevSegment[head];
+        return at(s, sizes[s] - 1);
+    }
+
+    // put the city into the tour right after city before
+    private void insertAfter(int before, int city)
+    {
+        int s = segments[before];
+        straighten(s);
+        place(s, slots[before] + 1, city);
+    }
+
+    // put the city at place o of segment s, which is not read backwards,
+    // splitting the segment when it gets too long
+    private void place(int s, int o, int city)
+    {
+        if(city >= segments.length)
+            grow(Math.max(points.size(), 2 * segments.length));
+        int[] cities = items[s];
+        if(sizes[s] == cities.length){
+            cities = Arrays.copyOf(cities, 2 * cities.length);
+            items[s] = cities;
+        }
+        System.arraycopy(cities, o, cities, o + 1, sizes[s] - o);
+        cities[o] = city;
+        sizes[s]++;
+        segments[city] = s;
+        for(int k = o; k < sizes[s]; k++)
+            slots[cities[k]] = k;
+        count++;
+        //the group size falls behind sqrt(n) as the tour grows
+        if(count > 4L * group * group)
+            layout(toArray());
+        else if(sizes[s] >= 2 * group){
+            split(s, sizes[s] / 2);
+            number();
+        }
+    }
+
+    // store the segment's cities in tour order, so it is no longer read backwards
+    private void straighten(int s)
+    {
+        if(!reversed[s])
+            return;
+        reverseInside(s, 0, sizes[s] - 1);
+        reversed[s] = false;
+    }
+
+    // how much longer the tour gets when (x,y) goes between the cities a and b
+    private double increase(double x, double y, int a, int b)
+    {
+        return points.distance(a, x, y) + points.distance(b, x, y) - points.distance(a, b);
+    }
+
+    // put a batch in the store, make room for it and return the id of its
+    // first city
+    private int reserve(double[] xs, double[] ys)
+    {
+        int first = points.addAll(xs, ys);
+        if(points.size() > segments.length)
+            grow(points.size());
+        return first;
+    }
+
+    // make room in segments and slots for the given number of cities of the store
+    private void grow(int cities)
+    {
+        int old = segments.length;
+        segments = Arrays.copyOf(segments, cities);
+        slots = Arrays.copyOf(slots, cities);
+        Arrays.fill(segments, old, cities, NONE);
+    }
+
+    // the city at the given place of segment s, counting in tour order
+    private int at(int s, int o)
+    {
+        return items[s][reversed[s] ? sizes[s] - 1 - o : o];
+    }
+
+    // place of the city in its segment, counting in tour order
+    private int offset(int city)
+    {
+        int s = segments[city];
+        return reversed[s] ? sizes[s] - 1 - slots[city] : slots[city];
+    }
+
+    // where the city is along the tour from head, as one number
+    private long key(int city)
+    {
+        return (long) ranks[segments[city]] << 32 | offset(city);
+    }
+
+    // number the segments along the tour from head
+    private void number()
+    {
+        int s = head;
+        for(int k = 0; k < segmentCount; k++){
+            ranks[s] = k;
+            s = nextSegment[s];
+        }
+    }
+
+    // turn around the cities from place i to place j of segment s
+    private void reverseInside(int s, int i, int j)
+    {
+        if(reversed[s]){
+            int t = sizes[s] - 1 - j;
+            j = sizes[s] - 1 - i;
+            i = t;
+        }
+        int[] cities = items[s];
+        for(; i < j; i++, j--){
+            int a = cities[i];
+            int b = cities[j];
+            cities[i] = b;
+            slots[b] = i;
+            cities[j] = a;
+            slots[a] = j;
+        }
+    }
+
+    // move the cities from place o of segment s on into a new segment after it
+    private void split(int s, int o)
+    {
+        int t = allocate(sizes[s] - o);
+        int size = sizes[s];
+        for(int k = o; k < size; k++){
+            int city = at(s, k);
+            items[t][k - o] = city;
+            segments[city] = t;
+            slots[city] = k - o;
+        }
+        sizes[t] = size - o;
+        reversed[t] = false;
+        //the cities kept are at the end of the array when it is read backwards
+        if(reversed[s]){
+            System.arraycopy(items[s], size - o, items[s], 0, o);
+            for(int k = 0; k < o; k++)
+                slots[items[s][k]] = k;
+        }
+        sizes[s] = o;
+        int n = nextSegment[s];
+        nextSegment[t] = n;
+        prevSegment[n] = t;
+        nextSegment[s] = t;
+        prevSegment[t] = s;
+    }
+
+    // flip the segments from first to last and link them the other way round
+    private void reverseSegments(int first, int last)
+    {
+        int before = prevSegment[first];
+        int after = nextSegment[last];
+        //the whole tour: every segment just swaps its links
+        if(before == last){
+            int s = first;
+            for(int k = 0; k < segmentCount; k++){
+                int n = nextSegment[s];
+                nextSegment[s] = prevSegment[s];
+                prevSegment[s] = n;
+                reversed[s] = !reversed[s];
+                s = n;
+            }
+            return;
+        }
+        int s = first;
+        while(true){
+            int n = nextSegment[s];
+            nextSegment[s] = prevSegment[s];
+            prevSegment[s] = n;
+            reversed[s] = !reversed[s];
+            if(s == last)
+                break;
+            s = n;
+        }
+        nextSegment[before] = last;
+        prevSegment[last] = before;
+        nextSegment[first] = after;
+        prevSegment[after] = first;
+    }
+
+    // merge segment s into its smaller neighbor if it has become small and they fit together
+    private void mergeSmall(int s)
+    {
+        if(segmentCount < 2 || sizes[s] >= group / 2)
+            return;
+        int p = prevSegment[s];
+        int n = nextSegment[s];
+        int t = sizes[p] <= sizes[n] ? p : n;
+        if(sizes[s] + sizes[t] > 2 * group)
+            return;
+        if(t == p)
+            merge(p, s);
+        else
+            merge(s, n);
+    }
+
+    // append the cities of segment b to segment a, which comes right before
+    // it, in a's own array (b keeps its array for a later split)
+    private void merge(int a, int b)
+    {
+        straighten(a);
+        int size = sizes[a] + sizes[b];
+        if(items[a].length < size)
+            items[a] = Arrays.copyOf(items[a], Math.max(size, 2 * group));
+        int[] cities = items[a];
+        for(int o = 0; o < sizes[b]; o++){
+            int city = at(b, o);
+            cities[sizes[a] + o] = city;
+            segments[city] = a;
+            slots[city] = sizes[a] + o;
+        }
+        sizes[a] = size;
+        int n = nextSegment[b];
+        nextSegment[a] = n;
+        prevSegment[n] = a;
+        if(head == b)
+            head = a;
+        free[freeCount++] = b;
+        segmentCount--;
+    }
+
+    // a free segment id with room for the given number of cities
+    private int allocate(int size)
+    {
+        if(freeCount == 0)
+            growSegments(2 * items.length);
+        int s = free[--freeCount];
+        if(items[s] == null || items[s].length < size)
+            items[s] = new int[Math.max(size, 2 * group)];
+        segmentCount++;
+        return s;
+    }
+
+    // make room for the given number of segments, the new ones free
+    private void growSegments(int capacity)
+    {
+        int old = items.length;
+        items = Arrays.copyOf(items, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        reversed = Arrays.copyOf(reversed, capacity);
+        nextSegment = Arrays.copyOf(nextSegment, capacity);
+        prevSegment = Arrays.copyOf(prevSegment, capacity);
+        ranks = Arrays.copyOf(ranks, capacity);
+        free = Arrays.copyOf(free, capacity);
+        for(int s = capacity - 1; s >= old; s--)
+            free[freeCount++] = s;
+    }
+}
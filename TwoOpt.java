@@ -0,0 +1,113 @@
+import java.util.*;
+
+/**
+ * Improves a finished tour with 2-opt moves: two edges (a,b) and (c,d) are
+ * replaced by (a,c) and (b,d), reversing the path in between, whenever that
+ * makes the tour shorter. The search stops when no such move is left.
+ *
+ * Only moves that join a city to one of its nearest neighbors are tried, and
+ * a city whose neighborhood did not change since it last failed to improve
+ * is skipped (its "don't-look bit" is set). Cities are kept in a queue and go
+ * back in whenever a move touches them, so after the first pass the work
+ * goes only to the places the last moves changed.
+ *
+ * @author
+ * @version
+ */
+
+public class TwoOpt
+{
+    // number of nearest neighbors a city may be joined to
+    private static final int DEFAULT_NEIGHBORS = 10;
+    // a move has to gain more than this, so rounding cannot make the search go in circles
+    private static final double EPSILON = 1e-9;
+
+    // instance variables
+    //Distances between the cities and the candidates for every one of them
+    private DistanceOracle distances;
+    private CandidateLists neighbors;
+    //The tour being improved
+    private OrientedTour order;
+    //Cities whose don't-look bit is off, in the order they will be tried
+    private CityQueue queue;
+
+    private TwoOpt(PointStore points, CandidateLists neighbors, OrientedTour order)
+    {
+        distances = points.distances();
+        this.neighbors = neighbors;
+        this.order = order;
+        queue = new CityQueue(order.size(), points.size());
+    }
+
+    // apply improving 2-opt moves to the tour until there are none left,
+    // joining cities to their 10 nearest neighbors, and return how many moves
+    // were made
+    public static int optimize(TourInterface tour)
+    {
+        return optimize(tour, tour.getPoints().candidates(DEFAULT_NEIGHBORS));
+    }
+
+    // the same with the given candidate lists, which must cover the tour's store
+    public static int optimize(TourInterface tour, CandidateLists neighbors)
+    {
+        if(tour.size() < 4)
+            return 0;
+        int[] cities = tour.toArray();
+        TwoOpt search = new TwoOpt(tour.getPoints(), neighbors, OrientedTour.of(tour.getPoints(), cities));
+        for(int city : cities)
+            search.queue.push(city);
+        int moves = search.run();
+        if(moves > 0)
+            tour.setOrder(search.order.toArray());
+        return moves;
+    }
+
+    // try the cities in the queue until it runs empty
+    private int run()
+    {
+        int moves = 0;
+        while(!queue.isEmpty()){
+            int a = queue.poll();
+            //a move puts the cities it touches, a among them, back in the queue
+            if(improve(a))
+                moves++;
+        }
+        return moves;
+    }
+
+    // look for an improving move that joins city a to one of its neighbors,
+    // make the first one found and tell whether there was one
+    private boolean improve(int a)
+    {
+        if(a >= neighbors.size())
+            return false;
+        int k = neighbors.neighbors();
+        for(int side = 0; side < 2; side++){
+            boolean forward = (side == 0);
+            int b = forward ? order.next(a) : order.prev(a);
+            double ab = distances.distance(a, b);
+            for(int i = 0; i < k; i++){
+                int c = neighbors.get(a, i);
+                double ac = distances.distance(a, c);
+                //the lists are sorted, so no farther neighbor can gain anything either
+                if(ac >= ab)
+                    break;
+                if(!order.contains(c))
+                    continue;
+                int d = forward ? order.next(c) : order.prev(c);
+                if(c == b || d == a)
+                    continue;
+                double delta = ac + distances.distance(b, d) - ab - distances.distance(c, d);
+                if(delta < -EPSILON){
+                    order.exchange(a, b, c, d);
+                    queue.push(a);
+                    queue.push(b);
+                    queue.push(c);
+                    queue.push(d);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,156 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The DistanceKernels loops with the Vector API, as many slots at a time as
+ * the machine's widest double vector holds (4 with AVX2, 8 with AVX-512).
+ * Every lane keeps its own best value, first slot and count of ties, and the
+ * lanes are combined at the end; the slots left over after the last full
+ * vector go one at a time. The arithmetic is the same as PointStore.distance,
+ * without fused multiply-adds, so the answers match ScalarKernels exactly.
+ *
+ * It needs the jdk.incubator.vector module, so it sits apart from the other
+ * classes and is compiled and run with --add-modules jdk.incubator.vector
+ * (see README.TXT). DistanceKernels.get() only loads it when that works.
+ *
+ * @author
+ * @version
+ */
+
+public class VectorKernels extends DistanceKernels
+{
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // 0, 1, 2, ... in the lanes, to number the slots
+    private static final DoubleVector IOTA = iota();
+
+    protected DistanceKernels create()
+    {
+        return new VectorKernels();
+    }
+
+    public void distances(double[] xs, double[] ys, int first, int last, double x, double y, double[] out)
+    {
+        DoubleVector px = DoubleVector.broadcast(SPECIES, x);
+        DoubleVector py = DoubleVector.broadcast(SPECIES, y);
+        int c = first;
+        for(int end = first + SPECIES.loopBound(last - first); c < end; c += SPECIES.length()){
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, c).sub(px);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, c).sub(py);
+            dx.mul(dx).add(dy.mul(dy)).sqrt().intoArray(out, c);
+        }
+        for(; c < last; c++)
+            out[c] = PointStore.distance(xs[c], ys[c], x, y);
+    }
+
+    public int nearest(double[] xs, double[] ys, int first, int last, double x, double y)
+    {
+        int c = first;
+        int end = first + SPECIES.loopBound(last - first);
+        int tracker = first;
+        double nearest = Double.POSITIVE_INFINITY;
+        int count = 0;
+        if(end > first){
+            DoubleVector px = DoubleVector.broadcast(SPECIES, x);
+            DoubleVector py = DoubleVector.broadcast(SPECIES, y);
+            DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+            DoubleVector step = DoubleVector.broadcast(SPECIES, SPECIES.length());
+            DoubleVector slot = IOTA.add(first);
+            DoubleVector best = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+            DoubleVector slots = slot;
+            DoubleVector counts = DoubleVector.zero(SPECIES);
+            for(; c < end; c += SPECIES.length()){
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, c).sub(px);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, c).sub(py);
+                DoubleVector d = dx.mul(dx).add(dy.mul(dy)).sqrt();
+                VectorMask<Double> lower = d.lt(best);
+                counts = counts.add(one, d.eq(best)).blend(one, lower);
+                slots = slots.blend(slot, lower);
+                best = best.blend(d, lower);
+                slot = slot.add(step);
+            }
+            nearest = best.reduceLanes(VectorOperators.MIN);
+            VectorMask<Double> at = best.eq(nearest);
+            tracker = (int) slots.reduceLanes(VectorOperators.MIN, at);
+            count = (int) counts.reduceLanes(VectorOperators.ADD, at);
+        }
+        for(; c < last; c++){
+            double d = PointStore.distance(xs[c], ys[c], x, y);
+            if(d < nearest){
+                tracker = c;
+                nearest = d;
+                count = 1;
+            } else if(d == nearest){
+                count++;
+            }
+        }
+        ties = count;
+        return tracker;
+    }
+
+    public int cheapest(double[] xs, double[] ys, double[] nextXs, double[] nextYs, int first, int last,
+                        double x, double y)
+    {
+        int c = first;
+        int end = first + SPECIES.loopBound(last - first);
+        int tracker = first;
+        double min = Double.POSITIVE_INFINITY;
+        int count = 0;
+        if(end > first){
+            DoubleVector px = DoubleVector.broadcast(SPECIES, x);
+            DoubleVector py = DoubleVector.broadcast(SPECIES, y);
+            DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+            DoubleVector step = DoubleVector.broadcast(SPECIES, SPECIES.length());
+            DoubleVector slot = IOTA.add(first);
+            DoubleVector best = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+            DoubleVector slots = slot;
+            DoubleVector counts = DoubleVector.zero(SPECIES);
+            for(; c < end; c += SPECIES.length()){
+                DoubleVector ax = DoubleVector.fromArray(SPECIES, xs, c);
+                DoubleVector ay = DoubleVector.fromArray(SPECIES, ys, c);
+                DoubleVector bx = DoubleVector.fromArray(SPECIES, nextXs, c);
+                DoubleVector by = DoubleVector.fromArray(SPECIES, nextYs, c);
+                DoubleVector d = distance(px, py, ax, ay).add(distance(px, py, bx, by)).sub(distance(ax, ay, bx, by));
+                VectorMask<Double> lower = d.lt(best);
+                counts = counts.add(one, d.eq(best)).blend(one, lower);
+                slots = slots.blend(slot, lower);
+                best = best.blend(d, lower);
+                slot = slot.add(step);
+            }
+            min = best.reduceLanes(VectorOperators.MIN);
+            VectorMask<Double> at = best.eq(min);
+            tracker = (int) slots.reduceLanes(VectorOperators.MIN, at);
+            count = (int) counts.reduceLanes(VectorOperators.ADD, at);
+        }
+        for(; c < last; c++){
+            double d = PointStore.distance(x, y, xs[c], ys[c]) + PointStore.distance(x, y, nextXs[c], nextYs[c])
+                - PointStore.distance(xs[c], ys[c], nextXs[c], nextYs[c]);
+            if(d < min){
+                tracker = c;
+                min = d;
+                count = 1;
+            } else if(d == min){
+                count++;
+            }
+        }
+        ties = count;
+        return tracker;
+    }
+
+    // PointStore.distance lane by lane
+    private static DoubleVector distance(DoubleVector x1, DoubleVector y1, DoubleVector x2, DoubleVector y2)
+    {
+        DoubleVector dx = x1.sub(x2);
+        DoubleVector dy = y1.sub(y2);
+        return dx.mul(dx).add(dy.mul(dy)).sqrt();
+    }
+
+    private static DoubleVector iota()
+    {
+        double[] lanes = new double[SPECIES.length()];
+        for(int i = 0; i < lanes.length; i++)
+            lanes[i] = i;
+        return DoubleVector.fromArray(SPECIES, lanes, 0);
+    }
+}